@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Benchmarks of the move generation, evaluation and AI move selection
+ * Every benchmark reports throughput (ops/s) and allocations (bytes per operation, MB/s, GC runs).
+ * Fields have no listeners, so the games are silent.
+ * Run: java -cp out Benchmarks [name filter] [positions file (default bench/positions.txt)]
+ */
+public class Benchmarks {
+    /** Number of warmup iterations */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /** Number of measured iterations */
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    /** Duration of one iteration in milliseconds */
+    private static final long ITERATION_MILLIS = 1000;
+
+    /** Search time per move of the MASTER games (the default time would make one game last minutes) */
+    private static final long MASTER_SEARCH_TIME = 20;
+
+    /** Search depth of the move ordering benchmark */
+    private static final int ORDERING_DEPTH = 8;
+
+    /** Sink of the benchmark results (so JIT does not remove the measured code) */
+    private static volatile long sink;
+
+    /** Measured operation */
+    private interface Operation {
+        /**
+         * Run the operation once
+         * @return any result of the operation
+         */
+        long run();
+    }
+
+    /**
+     * Read positions file (text format of the Position, lines starting with '#' are comments)
+     * @param path path to the file
+     * @return list of positions
+     */
+    private static List<Position> readPositions(Path path) throws IOException {
+        List<Position> positions = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            if (!line.isBlank() && !line.startsWith("#")) {
+                positions.add(Position.parse(line));
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Get number of legal moves of the position
+     * @param position position
+     * @return number of moves
+     */
+    private static int countMoves(Position position) {
+        return Long.bitCount(BitBoard.legalMoves(position.player(), position.opponent()));
+    }
+
+    /**
+     * Create fields set to the positions
+     * @param positions positions
+     * @param mode game mode
+     * @param level difficulty level
+     * @return list of fields
+     */
+    private static List<Field> createFields(List<Position> positions, Game.GameMode mode,
+                                            Game.DifficultyLevel level) {
+        List<Field> fields = new ArrayList<>();
+        for (Position position : positions) {
+            Field field = new Field();
+            field.setGameMode(mode);
+            field.setDifficultyLevel(level);
+            field.setPosition(position);
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /**
+     * Get allocated bytes of the current thread
+     * @return allocated bytes (or -1 if the JVM does not support it)
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Get total number of garbage collections
+     * @return number of collections
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Run one iteration of the benchmark
+     * @param operation measured operation
+     * @return number of invocations, elapsed nanoseconds and allocated bytes
+     */
+    private static long[] iterate(Operation operation) {
+        long invocations = 0;
+        long result = 0;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long end = start + ITERATION_MILLIS * 1_000_000;
+        long now;
+        do {
+            result += operation.run();
+            invocations++;
+            now = System.nanoTime();
+        } while (now < end);
+        sink = result;
+        return new long[] {invocations, now - start, allocatedBytes() - bytes};
+    }
+
+    /**
+     * Run the benchmark and print its results
+     * @param name name of the benchmark
+     * @param operationsPerInvocation number of operations done by one invocation
+     * @param operation measured operation
+     */
+    private static void run(String name, int operationsPerInvocation, Operation operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+        double[] throughput = new double[MEASUREMENT_ITERATIONS];
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long collections = gcCount();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long[] result = iterate(operation);
+            throughput[i] = result[0] * operationsPerInvocation * 1e9 / result[1];
+            operations += result[0] * operationsPerInvocation;
+            nanos += result[1];
+            bytes += result[2];
+        }
+        collections = gcCount() - collections;
+        double mean = 0;
+        for (double value : throughput) {
+            mean += value / MEASUREMENT_ITERATIONS;
+        }
+        double deviation = 0;
+        for (double value : throughput) {
+            deviation += (value - mean) * (value - mean) / (MEASUREMENT_ITERATIONS - 1);
+        }
+        System.out.printf("%-34s %14.1f +- %10.1f ops/s %12.1f B/op %9.1f MB/s %5d gc%n",
+                name, mean, Math.sqrt(deviation), (double) bytes / operations,
+                bytes / (nanos / 1e9) / (1024 * 1024), collections);
+    }
+
+    /**
+     * Main function
+     * @param args name filter and path to the positions file (both optional)
+     */
+    public static void main(String[] args) throws IOException {
+        String filter = args.length > 0 ? args[0] : "";
+        List<Position> positions = readPositions(Path.of(args.length > 1 ? args[1] : "bench/positions.txt"));
+        int moves = 0;
+        for (Position position : positions) {
+            moves += countMoves(position);
+        }
+        System.out.println(positions.size() + " positions, " + moves + " moves");
+
+        if ("updatePossibleMoves".contains(filter)) {
+            List<Field> fields = createFields(positions, Game.GameMode.PLAYER_VS_PLAYER, Game.DifficultyLevel.NORMAL);
+            run("updatePossibleMoves", fields.size(), () -> {
+                for (Field field : fields) {
+                    field.clearPossibleMoves();
+                    field.updatePossibleMoves();
+                }
+                return fields.size();
+            });
+        }
+        for (Game.DifficultyLevel level : new Game.DifficultyLevel[] {
+                Game.DifficultyLevel.NORMAL, Game.DifficultyLevel.ADVANCED}) {
+            String name = (level == Game.DifficultyLevel.NORMAL ? "evaluation" : "smartEvaluation") + " (per move)";
+            if (name.contains(filter)) {
+                List<Field> fields = createFields(positions, Game.GameMode.PLAYER_VS_PLAYER, level);
+                run(name, moves, () -> {
+                    long result = 0;
+                    for (Field field : fields) {
+                        result += Objects.hashCode(field.evaluateMoves());
+                    }
+                    return result;
+                });
+            }
+        }
+        for (Evaluator evaluator : new Evaluator[] {new SquareEvaluator(), new PatternEvaluator()}) {
+            String name = "evaluate " + evaluator.getClass().getSimpleName();
+            if (name.contains(filter)) {
+                run(name, positions.size(), () -> {
+                    long result = 0;
+                    for (Position position : positions) {
+                        result += evaluator.evaluate(position.player(), position.opponent());
+                    }
+                    return result;
+                });
+            }
+        }
+        if ("moveCancelMove (per move)".contains(filter)) {
+            List<Field> fields = createFields(positions, Game.GameMode.PLAYER_VS_PLAYER, Game.DifficultyLevel.NORMAL);
+            List<List<Point>> points = new ArrayList<>();
+            for (Position position : positions) {
+                List<Point> list = new ArrayList<>();
+                for (long legal = BitBoard.legalMoves(position.player(), position.opponent());
+                     legal != 0; legal &= legal - 1) {
+                    list.add(BitBoard.toPoint(Long.numberOfTrailingZeros(legal)));
+                }
+                points.add(list);
+            }
+            run("moveCancelMove (per move)", moves, () -> {
+                for (int i = 0; i < fields.size(); i++) {
+                    for (Point point : points.get(i)) {
+                        fields.get(i).move(point);
+                        fields.get(i).cancelMove();
+                    }
+                }
+                return fields.size();
+            });
+        }
+        for (boolean isOrdering : new boolean[] {false, true}) {
+            String name = "search depth " + ORDERING_DEPTH + (isOrdering ? " (ordering)" : " (hash move only)");
+            if (name.contains(filter)) {
+                Search search = new Search();
+                search.setMaxDepth(ORDERING_DEPTH);
+                search.setOrdering(isOrdering);
+                long nodes = 0;
+                double firstMoveCutoffRate = 0;
+                for (Position position : positions) {
+                    search.getTable().clear();
+                    search.findMove(position.black(), position.white(), position.isBlackGo());
+                    nodes += search.getNodes();
+                    firstMoveCutoffRate += search.getFirstMoveCutoffRate();
+                }
+                System.out.printf("%-34s %14d nodes/search, first move cutoffs %.1f%%%n", name,
+                        nodes / positions.size(), 100 * firstMoveCutoffRate / positions.size());
+                run(name, positions.size(), () -> {
+                    long result = 0;
+                    for (Position position : positions) {
+                        search.getTable().clear();
+                        result += search.findMove(position.black(), position.white(), position.isBlackGo());
+                    }
+                    return result;
+                });
+            }
+        }
+        for (Game.DifficultyLevel level : Game.DifficultyLevel.values()) {
+            String name = "game " + level;
+            if (name.contains(filter)) {
+                Field field = new Field();
+                field.setGameMode(Game.GameMode.COMPUTER_VS_COMPUTER);
+                field.setDifficultyLevel(level);
+                field.setSearchTime(MASTER_SEARCH_TIME);
+                run(name, 1, () -> {
+                    field.resetField();
+                    while (!field.hasGameEnded()) {
+                        field.move();
+                    }
+                    return field.getTurn() ? 1 : 0;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.SplittableRandom;
+
+/**
+ * Check of the dataset labels of the positions with the only possible move
+ * Random games are played on the game field, the label of every position with the only possible move
+ * is compared with the direct search (or exact solve) of the position after the move made on the field.
+ * Run: java -cp out LabelCheck [positions=300] [depth=4] [seed=1]
+ */
+public class LabelCheck {
+    /**
+     * Check the labels and print every wrong one
+     * @param count number of the checked positions
+     * @param depth search depth of the labels
+     * @param seed seed of the random games
+     * @return number of the wrong labels
+     */
+    private static int check(int count, int depth, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        DatasetGenerator generator = new DatasetGenerator(null, 0, 0, 0, depth, 1, null);
+        Search search = new Search();
+        search.setMaxDepth(depth);
+        search.setTimeMillis(0);
+        EndgameSolver solver = new EndgameSolver();
+        Field field = new Field();
+        field.setGameMode(Game.GameMode.PLAYER_VS_PLAYER);
+        int checked = 0;
+        int wrong = 0;
+        while (checked < count) {
+            field.resetField();
+            while (checked < count && !field.hasGameEnded()) {
+                Position position = field.getPosition();
+                long moves = BitBoard.legalMoves(position.player(), position.opponent());
+                if (moves == 0) {
+                    field.move();
+                    continue;
+                }
+                for (int i = random.nextInt(Long.bitCount(moves)); i > 0; i--) {
+                    moves &= moves - 1;
+                }
+                boolean isForced = Long.bitCount(BitBoard.legalMoves(position.player(), position.opponent())) == 1;
+                field.move(BitBoard.toPoint(Long.numberOfTrailingZeros(moves)));
+                Position next = field.getPosition();
+                if (!isForced || Long.bitCount(BitBoard.legalMoves(next.player(), next.opponent())) < 2) {
+                    continue;
+                }
+                int label = generator.searchLabel(position);
+                int expected;
+                if (Long.bitCount(~(next.black() | next.white())) <= EndgameSolver.DEFAULT_THRESHOLD) {
+                    solver.solve(next.player(), next.opponent(), false);
+                    expected = -solver.getScore() * Search.SCORE_SCALE;
+                } else {
+                    search.getTable().clear();
+                    search.findMove(next.black(), next.white(), next.isBlackGo());
+                    expected = -Search.diskScore(search.getBestScore());
+                }
+                checked++;
+                if (label != expected) {
+                    wrong++;
+                    System.out.println("Wrong label of " + position + ": " + label + ", expected: " + expected);
+                }
+            }
+        }
+        System.out.println("Forced move labels checked: " + checked + ", wrong: " + wrong);
+        return wrong;
+    }
+
+    /**
+     * Main function
+     * @param args options positions=N, depth=N, seed=N
+     */
+    public static void main(String[] args) {
+        int count = 300;
+        int depth = 4;
+        long seed = 1;
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            switch (option[0]) {
+                case "positions" -> count = Integer.parseInt(option[1]);
+                case "depth" -> depth = Integer.parseInt(option[1]);
+                case "seed" -> seed = Long.parseLong(option[1]);
+                default -> {
+                    System.out.println("Usage: java LabelCheck [positions=300] [depth=4] [seed=1]");
+                    return;
+                }
+            }
+        }
+        if (check(count, depth, seed) > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch analysis of the positions file without the menu: every line is a position in the text format
+ * (see Position), every output line is the position, the best move, its score, the depth and the nodes
+ * Positions are searched in parallel, the results are written in the input order. Only the window of the
+ * submitted positions is kept in memory: when it is full, the reader waits for the oldest result and writes it,
+ * so the reading goes at the speed of the searches for any size of the file.
+ */
+public class BatchAnalysis {
+    /** Default number of the positions in progress per thread */
+    private static final int DEFAULT_WINDOW_PER_THREAD = 4;
+
+    /** Max search depth (0 = search time only) */
+    private final int depth;
+
+    /** Search time per position in milliseconds (0 = search depth only) */
+    private final long timeMillis;
+
+    /** Memory budget of the search cache of every thread (in megabytes) */
+    private final int hashSize;
+
+    /** Static evaluation of the positions (null = location values and mobility) */
+    private final Evaluator evaluator;
+
+    /** Search engines owned by the current thread */
+    private final ThreadLocal<Search> searches;
+
+    /** Number of the analysed positions */
+    private final LongAdder positions = new LongAdder();
+
+    /** Number of the lines which are not positions */
+    private final LongAdder errors = new LongAdder();
+
+    /** Number of the searched nodes */
+    private final LongAdder nodes = new LongAdder();
+
+    /**
+     * Constructor of the batch analysis
+     * @param depth max search depth (0 = search time only)
+     * @param timeMillis search time per position in milliseconds (0 = search depth only)
+     * @param hashSize memory budget of the search cache of every thread (in megabytes)
+     * @param evaluator static evaluation of the positions (null = location values and mobility)
+     */
+    public BatchAnalysis(int depth, long timeMillis, int hashSize, Evaluator evaluator) {
+        this.depth = depth;
+        this.timeMillis = timeMillis;
+        this.hashSize = hashSize;
+        this.evaluator = evaluator;
+        searches = ThreadLocal.withInitial(this::newSearch);
+    }
+
+    /**
+     * Create the search engine of the thread
+     * @return search engine
+     */
+    private Search newSearch() {
+        Search search = new Search(new TranspositionTable(hashSize));
+        search.setEvaluator(evaluator);
+        search.setMaxDepth(depth > 0 ? depth : Search.MAX_DEPTH);
+        search.setTimeMillis(timeMillis);
+        return search;
+    }
+
+    /**
+     * Result of the search of the position
+     * @param square square of the best move (-1 if the player has to pass)
+     * @param score score for the player to move (in hundredths of disks)
+     * @param depth completed depth
+     * @param nodes searched nodes
+     */
+    private record Result(int square, int score, int depth, long nodes) {}
+
+    /**
+     * Analyse one line of the input (on the analysis thread)
+     * @param line position in the text format
+     * @return output line: position, best move ("x y" or "pass"), score in disks, depth and nodes,
+     *         or the line and the error
+     */
+    private String analyze(String line) {
+        Position position;
+        try {
+            position = Position.parse(line);
+        } catch (IllegalArgumentException e) {
+            errors.increment();
+            return line.strip() + " error: " + e.getMessage();
+        }
+        Result result;
+        long player = position.player();
+        long opponent = position.opponent();
+        if (BitBoard.legalMoves(player, opponent) != 0) {
+            result = search(position);
+        } else if (BitBoard.legalMoves(opponent, player) != 0) {
+            Result reply = search(new Position(position.black(), position.white(), !position.isBlackGo()));
+            result = new Result(-1, -reply.score(), reply.depth(), reply.nodes());
+        } else {
+            result = new Result(-1, Search.finalScore(player, opponent), 0, 0);
+        }
+        positions.increment();
+        nodes.add(result.nodes());
+        Point point = result.square() < 0 ? null : BitBoard.toPoint(result.square());
+        return String.format("%s %s %+.2f depth %d nodes %d", position,
+                point == null ? "pass" : point.x() + " " + point.y(),
+                (double) Search.diskScore(result.score()) / Search.SCORE_SCALE, result.depth(), result.nodes());
+    }
+
+    /**
+     * Search the position which has possible moves
+     * The only possible move is searched by the depths as well, because findMove does not score it.
+     * @param position position with possible moves
+     * @return result of the search
+     */
+    private Result search(Position position) {
+        Search search = searches.get();
+        long moves = BitBoard.legalMoves(position.player(), position.opponent());
+        if (Long.bitCount(moves) != 1) {
+            int square = search.findMove(position.black(), position.white(), position.isBlackGo());
+            return new Result(square, search.getBestScore(), search.getCompletedDepth(), search.getNodes());
+        }
+        int square = Long.numberOfTrailingZeros(moves);
+        int limit = Math.min(depth > 0 ? depth : Search.MAX_DEPTH,
+                Long.bitCount(~(position.black() | position.white())));
+        long start = System.nanoTime();
+        int score = 0;
+        int completedDepth = 0;
+        long searched = 0;
+        for (int iteration = 1; iteration <= limit; iteration++) {
+            long remaining = timeMillis - (System.nanoTime() - start) / 1_000_000;
+            if (timeMillis > 0 && remaining <= 0) {
+                break;
+            }
+            search.setTimeMillis(timeMillis > 0 ? remaining : 0);
+            int result = search.searchMove(position.black(), position.white(), position.isBlackGo(), square,
+                    iteration);
+            searched += search.getNodes();
+            if (search.getCompletedDepth() != iteration) {
+                break;
+            }
+            score = result;
+            completedDepth = iteration;
+        }
+        search.setTimeMillis(timeMillis);
+        return new Result(square, score, completedDepth, searched);
+    }
+
+    /**
+     * Analyse the positions in parallel writing the results in the input order
+     * @param reader input of the positions (one per line, empty lines and lines from '#' are skipped)
+     * @param writer output of the results
+     * @param threads number of the threads
+     * @param window max number of the positions in progress
+     */
+    public void run(BufferedReader reader, BufferedWriter writer, int threads, int window)
+            throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                if (pending.size() >= Math.max(1, window)) {
+                    write(pending.removeFirst(), writer);
+                }
+                String input = line;
+                pending.addLast(executor.submit(() -> analyze(input)));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.removeFirst(), writer);
+            }
+            writer.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Wait for the result and write it
+     * @param result result of the analysis
+     * @param writer output of the results
+     */
+    private static void write(Future<String> result, BufferedWriter writer) throws IOException, InterruptedException {
+        try {
+            writer.write(result.get());
+            writer.newLine();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the progress line
+     * @param start start time of the analysis (in nanoseconds)
+     * @return positions, errors, nodes, positions per second and nodes per second
+     */
+    public String progress(long start) {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        return String.format("%d positions (%d errors), %d nodes in %.1f s: %.1f positions/s, %.0f nodes/s",
+                positions.sum(), errors.sum(), nodes.sum(), seconds, positions.sum() / seconds,
+                nodes.sum() / seconds);
+    }
+
+    /**
+     * Main function
+     * @param args path to the positions file ('-' = standard input), then options output=file ('-' = standard
+     *             output), depth=N, time=MILLIS, threads=N, window=N, hash=MB, weights=file|default
+     *             (pattern evaluation, otherwise location values), report=SECONDS
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: java BatchAnalysis <positions|-> [output=-] [depth=8] [time=0] [threads=N] "
+                    + "[window=N] [hash=16] [weights=file|default] [report=0]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long time = Long.parseLong(options.getOrDefault("time", "0"));
+        String weights = options.get("weights");
+        Evaluator evaluator = weights == null ? null
+                : weights.equals("default") ? new PatternEvaluator() : PatternEvaluator.load(Path.of(weights));
+        BatchAnalysis analysis = new BatchAnalysis(
+                Integer.parseInt(options.getOrDefault("depth", time > 0 ? "0" : "8")), time,
+                Integer.parseInt(options.getOrDefault("hash", String.valueOf(Search.DEFAULT_HASH_SIZE))), evaluator);
+        int report = Integer.parseInt(options.getOrDefault("report", "0"));
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = null;
+        if (report > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "batch-report");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> System.err.println(analysis.progress(start)), report, report,
+                    TimeUnit.SECONDS);
+        }
+        String output = options.getOrDefault("output", "-");
+        try (BufferedReader reader = args[0].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[0]));
+             BufferedWriter writer = output.equals("-")
+                     ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                     : Files.newBufferedWriter(Path.of(output))) {
+            analysis.run(reader, writer, threads, Integer.parseInt(options.getOrDefault("window",
+                    String.valueOf(Math.max(1, threads) * DEFAULT_WINDOW_PER_THREAD))));
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+        System.err.println(analysis.progress(start));
+    }
+}
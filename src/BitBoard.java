@@ -0,0 +1,186 @@
+/**
+ * Bitboard utilities for the 8x8 reversi board.
+ * Square index of the point (x, y) is (x - 1) + 8 * (y - 1), one bit per square.
+ */
+public final class BitBoard {
+    /** Number of squares on the board */
+    public static final int SQUARES = 64;
+
+    /** Start position of black disks */
+    public static final long START_BLACK = (1L << 28) | (1L << 35);
+
+    /** Start position of white disks */
+    public static final long START_WHITE = (1L << 27) | (1L << 36);
+
+    /** All squares except the column x = 1 */
+    private static final long NOT_A_FILE = 0xFEFEFEFEFEFEFEFEL;
+
+    /** All squares except the column x = 8 */
+    private static final long NOT_H_FILE = 0x7F7F7F7F7F7F7F7FL;
+
+    /** Number of the directions */
+    public static final int DIRECTIONS = 8;
+
+    /** Bit shifts of the directions (same order as the directions of the Field) */
+    private static final int[] SHIFTS = {
+            -8,     // Up
+            -9,     // Up-Left
+            -7,     // Up-Right
+            8,      // Down
+            7,      // Down-Left
+            9,      // Down-Right
+            -1,     // Left
+            1       // Right
+    };
+
+    /** Masks to apply after shifting (they cut the disks wrapped around the board side) */
+    private static final long[] MASKS = {
+            -1L,
+            NOT_H_FILE,
+            NOT_A_FILE,
+            -1L,
+            NOT_H_FILE,
+            NOT_A_FILE,
+            NOT_H_FILE,
+            NOT_A_FILE
+    };
+
+    private BitBoard() {
+    }
+
+    /**
+     * Shift all the disks one step to the direction
+     * @param bits disks
+     * @param direction index of the direction
+     * @return shifted disks
+     */
+    static long shift(long bits, int direction) {
+        int shift = SHIFTS[direction];
+        return (shift > 0 ? bits << shift : bits >>> -shift) & MASKS[direction];
+    }
+
+    /**
+     * Get all legal moves of the player
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return mask of the squares to move
+     */
+    public static long legalMoves(long player, long opponent) {
+        long empty = ~(player | opponent);
+        long moves = 0;
+        for (int d = 0; d < SHIFTS.length; d++) {
+            long line = shift(player, d) & opponent;
+            for (int i = 0; i < 5; i++) {
+                line |= shift(line, d) & opponent;
+            }
+            moves |= shift(line, d) & empty;
+        }
+        return moves;
+    }
+
+    /**
+     * Get opponent's disks to recolor after the move
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param square square to move (must be empty)
+     * @return mask of the disks to flip (0 if the move is illegal)
+     */
+    public static long flips(long player, long opponent, int square) {
+        long start = 1L << square;
+        long flips = 0;
+        for (int d = 0; d < SHIFTS.length; d++) {
+            long line = 0;
+            long cursor = shift(start, d);
+            while ((cursor & opponent) != 0) {
+                line |= cursor;
+                cursor = shift(cursor, d);
+            }
+            if ((cursor & player) != 0) {
+                flips |= line;
+            }
+        }
+        return flips;
+    }
+
+    /**
+     * Get square index of the point
+     * @param point coordinates (numbering from one)
+     * @return square index
+     */
+    public static int toSquare(Point point) {
+        return (point.x() - 1) + 8 * (point.y() - 1);
+    }
+
+    /**
+     * Get point of the square index
+     * @param square square index
+     * @return coordinates (numbering from one)
+     */
+    public static Point toPoint(int square) {
+        return new Point(square % 8 + 1, square / 8 + 1);
+    }
+
+    /**
+     * Transform disks by one of the 8 board symmetries
+     * (bit 2 - transposition, then bit 0 - horizontal mirror, then bit 1 - vertical flip)
+     * @param bits disks
+     * @param symmetry number of the symmetry (0 = identity)
+     * @return transformed disks
+     */
+    public static long transform(long bits, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            bits = transpose(bits);
+        }
+        if ((symmetry & 1) != 0) {
+            bits = mirror(bits);
+        }
+        if ((symmetry & 2) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Undo the transform by one of the 8 board symmetries
+     * @param bits transformed disks
+     * @param symmetry number of the symmetry
+     * @return original disks
+     */
+    public static long inverseTransform(long bits, int symmetry) {
+        if ((symmetry & 2) != 0) {
+            bits = Long.reverseBytes(bits);
+        }
+        if ((symmetry & 1) != 0) {
+            bits = mirror(bits);
+        }
+        if ((symmetry & 4) != 0) {
+            bits = transpose(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Mirror disks horizontally (x -> 9 - x)
+     * @param bits disks
+     * @return mirrored disks
+     */
+    private static long mirror(long bits) {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+    }
+
+    /**
+     * Transpose disks (x <-> y)
+     * @param bits disks
+     * @return transposed disks
+     */
+    private static long transpose(long bits) {
+        long t = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (bits ^ (bits << 7));
+        return bits ^ t ^ (t >>> 7);
+    }
+}
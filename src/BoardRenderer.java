@@ -0,0 +1,260 @@
+import java.io.PrintStream;
+
+/**
+ * Renderer of the game field to the console: every frame is built in a reusable buffer and written in one call
+ * The plain mode prints the whole board every frame. The ANSI mode draws the board once at the top of the
+ * terminal, keeps the text below it in the scroll region and then redraws only the changed cells (disks,
+ * possible moves and the marker of the last move) with the cursor moves. The frame cap skips the frames which
+ * come faster than the max frame rate or between every (skip + 1)-th frame, so the AI games can be watched
+ * without slowing the engines; the forced frames (the human's turn, the end of the game) are never skipped.
+ */
+public class BoardRenderer {
+    /** Width of the cell with its border */
+    private static final int CELL_WIDTH = 4;
+
+    /** Screen line of the status (the clock) in the ANSI mode, the scroll region of the text starts below */
+    private static final int STATUS_LINE = 2 * Game.BOARD_SIZE + 2;
+
+    /** Flag of the last move in the state of the cell */
+    private static final byte LAST_MOVE = 8;
+
+    /** Border line between the rows */
+    private static final String BORDER = "–".repeat(Game.BOARD_SIZE * CELL_WIDTH);
+
+    /** Escape sequence start */
+    private static final String CSI = "\u001b[";
+
+    /** Output of the frames (null = the standard output at the time of the frame) */
+    private final PrintStream out;
+
+    /** Flag of the ANSI mode (only changed cells are redrawn) */
+    private final boolean isAnsi;
+
+    /** Least time between not forced frames (in nanoseconds, 0 = no frame rate cap) */
+    private final long minFrameNanos;
+
+    /** Number of the not forced frames skipped after every drawn frame */
+    private final int frameSkip;
+
+    /** Buffer of the frame */
+    private final StringBuilder frame = new StringBuilder(1024);
+
+    /** States of the drawn cells (color, plus LAST_MOVE for the last move) in the ANSI mode */
+    private final byte[] drawn = new byte[Game.BOARD_SIZE * Game.BOARD_SIZE];
+
+    /** Drawn status line in the ANSI mode */
+    private String drawnStatus = "";
+
+    /** Flag if the board is on the screen (the ANSI mode redraws the changed cells only) */
+    private boolean isDrawn = false;
+
+    /** Time of the last drawn frame (in nanoseconds) */
+    private long lastFrameNanos;
+
+    /** Number of the frames skipped since the last drawn frame */
+    private int skipped = 0;
+
+    /** Number of the drawn frames */
+    private long frames = 0;
+
+    /** Number of the skipped frames */
+    private long skippedFrames = 0;
+
+    /**
+     * Constructor of the renderer
+     * @param out output of the frames (null = the standard output at the time of the frame)
+     * @param isAnsi flag of the ANSI mode (only changed cells are redrawn)
+     * @param maxFps max frame rate of the not forced frames (0 = no cap)
+     * @param frameSkip number of the not forced frames skipped after every drawn frame
+     */
+    public BoardRenderer(PrintStream out, boolean isAnsi, int maxFps, int frameSkip) {
+        this.out = out;
+        this.isAnsi = isAnsi;
+        this.minFrameNanos = maxFps > 0 ? 1_000_000_000L / maxFps : 0;
+        this.frameSkip = Math.max(0, frameSkip);
+    }
+
+    /**
+     * Draw the frame of the game field (or skip it by the frame cap)
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param isBlackGo flag if black goes
+     * @param possibleMoves mask of the possible moves
+     * @param lastMove square of the last move (-1 = no move)
+     * @param status status line (the clock, null = no status)
+     * @param isForced flag if the frame can not be skipped
+     * @return true if the frame is drawn
+     */
+    public boolean render(long black, long white, boolean isBlackGo, long possibleMoves, int lastMove,
+                          String status, boolean isForced) {
+        long now = System.nanoTime();
+        if (!isForced && frames > 0 && (!isAnsi || isDrawn)
+                && (skipped < frameSkip || minFrameNanos > 0 && now - lastFrameNanos < minFrameNanos)) {
+            skipped++;
+            skippedFrames++;
+            return false;
+        }
+        frame.setLength(0);
+        if (isAnsi && isDrawn) {
+            appendChanges(black, white, isBlackGo, possibleMoves, lastMove, status == null ? "" : status);
+        } else if (isAnsi) {
+            appendAnsiBoard(black, white, isBlackGo, possibleMoves, lastMove, status == null ? "" : status);
+        } else {
+            appendBoard(black, white, isBlackGo, possibleMoves, -1);
+            if (status != null) {
+                frame.append(status).append(System.lineSeparator());
+            }
+        }
+        if (!frame.isEmpty()) {
+            PrintStream output = out == null ? System.out : out;
+            output.append(frame);
+            output.flush();
+        }
+        lastFrameNanos = now;
+        skipped = 0;
+        frames++;
+        return true;
+    }
+
+    /**
+     * Append the whole board to the frame (the numbers of the rows and the columns included)
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param isBlackGo flag if black goes
+     * @param possibleMoves mask of the possible moves
+     * @param lastMove square of the last marked move (-1 = no marker)
+     */
+    private void appendBoard(long black, long white, boolean isBlackGo, long possibleMoves, int lastMove) {
+        String newLine = System.lineSeparator();
+        for (int i = 0; i < Game.BOARD_SIZE; i++) {
+            frame.append(i + 1);
+            for (int j = 0; j < Game.BOARD_SIZE; j++) {
+                frame.append('|');
+                appendCell(cellState(black, white, isBlackGo, possibleMoves, lastMove, j + Game.BOARD_SIZE * i));
+            }
+            frame.append(newLine).append(' ').append(BORDER).append(newLine);
+        }
+        frame.append(' ');
+        for (int j = 0; j < Game.BOARD_SIZE; j++) {
+            frame.append("  ").append(j + 1).append(' ');
+        }
+        frame.append(newLine);
+    }
+
+    /**
+     * Append the first board of the ANSI mode: clear the screen, draw the board and the status at the top
+     * and keep the text in the scroll region below them
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param isBlackGo flag if black goes
+     * @param possibleMoves mask of the possible moves
+     * @param lastMove square of the last move (-1 = no move)
+     * @param status status line
+     */
+    private void appendAnsiBoard(long black, long white, boolean isBlackGo, long possibleMoves, int lastMove,
+                                 String status) {
+        frame.append(CSI).append("2J").append(CSI).append("H");
+        appendBoard(black, white, isBlackGo, possibleMoves, lastMove);
+        frame.append(status);
+        frame.append(CSI).append(STATUS_LINE + 1).append('r');
+        frame.append(CSI).append(STATUS_LINE + 1).append(";1H");
+        for (int square = 0; square < drawn.length; square++) {
+            drawn[square] = cellState(black, white, isBlackGo, possibleMoves, lastMove, square);
+        }
+        drawnStatus = status;
+        isDrawn = true;
+    }
+
+    /**
+     * Append the changed cells and the status of the ANSI mode (the cursor of the text is saved and restored)
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param isBlackGo flag if black goes
+     * @param possibleMoves mask of the possible moves
+     * @param lastMove square of the last move (-1 = no move)
+     * @param status status line
+     */
+    private void appendChanges(long black, long white, boolean isBlackGo, long possibleMoves, int lastMove,
+                               String status) {
+        for (int square = 0; square < drawn.length; square++) {
+            byte state = cellState(black, white, isBlackGo, possibleMoves, lastMove, square);
+            if (state == drawn[square]) {
+                continue;
+            }
+            if (frame.isEmpty()) {
+                frame.append("\u001b7");
+            }
+            frame.append(CSI).append(2 * (square / Game.BOARD_SIZE) + 1).append(';')
+                    .append(CELL_WIDTH * (square % Game.BOARD_SIZE) + 3).append('H');
+            appendCell(state);
+            drawn[square] = state;
+        }
+        if (!status.equals(drawnStatus)) {
+            if (frame.isEmpty()) {
+                frame.append("\u001b7");
+            }
+            frame.append(CSI).append(STATUS_LINE).append(";1H").append(CSI).append('K').append(status);
+            drawnStatus = status;
+        }
+        if (!frame.isEmpty()) {
+            frame.append("\u001b8");
+        }
+    }
+
+    /**
+     * Get state of the cell
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param isBlackGo flag if black goes
+     * @param possibleMoves mask of the possible moves
+     * @param lastMove square of the last marked move (-1 = no marker)
+     * @param square square of the cell
+     * @return color of the cell (see Cell.toString), plus LAST_MOVE for the last move
+     */
+    private static byte cellState(long black, long white, boolean isBlackGo, long possibleMoves, int lastMove,
+                                  int square) {
+        byte color = Cell.color(black, white, possibleMoves, isBlackGo, square);
+        return (byte) (square == lastMove ? color | LAST_MOVE : color);
+    }
+
+    /**
+     * Append the cell to the frame (the last move is shown in the reverse video)
+     * @param state state of the cell
+     */
+    private void appendCell(byte state) {
+        if ((state & LAST_MOVE) != 0) {
+            frame.append(CSI).append("7m").append(Cell.toString((byte) (state & ~LAST_MOVE))).append(CSI).append('m');
+        } else {
+            frame.append(Cell.toString(state));
+        }
+    }
+
+    /**
+     * Forget the drawn board (the next frame is drawn whole) and give the whole screen back to the text
+     */
+    public void close() {
+        if (isAnsi && isDrawn) {
+            PrintStream output = out == null ? System.out : out;
+            output.print(CSI + "r" + CSI + "999;1H");
+            output.println();
+            output.flush();
+        }
+        isDrawn = false;
+    }
+
+    /**
+     * Get number of the drawn frames
+     * @return frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Get number of the skipped frames
+     * @return frames
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+}
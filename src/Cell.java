@@ -8,21 +8,12 @@ public class Cell {
     /** Flag if cell is located on the side of the field */
     private final boolean isEdge;
 
-    /**
-     * Cell color:
-     * 0 - black, 1 - white,
-     * 2 - empty,
-     * 3 - black-possible-move, 4 - white-possible-move
-     * */
-    private byte color;
-
     /**
      * Constructor of the cell
      * @param point coordinates of the cell
      * @param maxSize max size of the game board
      */
     public Cell(Point point, int maxSize) {
-        color = 2;
         isCorner = point.x() == 1 && point.y() == 1
                 || point.x() == 1 && point.y() == maxSize
                 || point.x() == maxSize && point.y() == 1
@@ -30,14 +21,6 @@ public class Cell {
         isEdge = point.x() == 1 || point.x() == maxSize || point.y() == 1 || point.y() == maxSize;
     }
 
-    /**
-     * Get cell's color
-     * @return cell's color
-     */
-    public byte getColor() {
-        return color;
-    }
-
     /**
      * Get closed cell's value (calculations are based on the cell's location)
      * @return value of current closed cell
@@ -67,19 +50,35 @@ public class Cell {
     }
 
     /**
-     * Repaint the cell
-     * @param color new color
+     * Get color of the cell of the board
+     * @param black black disks (bitboard)
+     * @param white white disks (bitboard)
+     * @param possibleMoves mask of the possible moves
+     * @param isBlackGo flag if black goes
+     * @param square square index of the cell
+     * @return cell's color (see toString)
      */
-    public void setColor(byte color) {
-        this.color = color;
+    public static byte color(long black, long white, long possibleMoves, boolean isBlackGo, int square) {
+        long bit = 1L << square;
+        if ((black & bit) != 0) {
+            return 0;
+        } else if ((white & bit) != 0) {
+            return 1;
+        } else if ((possibleMoves & bit) != 0) {
+            return (byte) (isBlackGo ? 3 : 4);
+        }
+        return 2;
     }
 
     /**
-     * Override toString method
+     * Get string representation of the cell's color
+     * @param color cell's color:
+     * 0 - black, 1 - white,
+     * 2 - empty,
+     * 3 - black-possible-move, 4 - white-possible-move
      * @return string representation of the cell
      */
-    @Override
-    public String toString() {
+    public static String toString(byte color) {
         return switch (color) {
             case 0 -> " ○ ";
             case 1 -> " ● ";
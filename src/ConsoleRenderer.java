@@ -0,0 +1,53 @@
+/**
+ * Listener printing the game events to the console
+ */
+public class ConsoleRenderer implements GameListener {
+    @Override
+    public void moveMade(Point point, boolean isBlack, boolean isComputer) {
+        if (isComputer) {
+            System.out.println("AI moved: " + point.x() + " " + point.y());
+        }
+        System.out.println("moved: (" + point.x() + " " + point.y() + ") ");
+    }
+
+    @Override
+    public void moveUndone(Point point) {
+        System.out.println("canceled move: (" + point.x() + " " + point.y() + ") ");
+    }
+
+    @Override
+    public void passed(boolean isBlack) {
+        System.out.println("No possible moves");
+    }
+
+    @Override
+    public void moveRejected(Point point) {
+        System.out.println("Impossible move!");
+    }
+
+    @Override
+    public void undoRejected() {
+        System.out.println("No moves to cancel!");
+    }
+
+    @Override
+    public void redoRejected() {
+        System.out.println("No moves to redo!");
+    }
+
+    @Override
+    public void historyRestored(int ply, int lastPly) {
+        System.out.println("Went to move " + ply + " of " + lastPly);
+    }
+
+    @Override
+    public void playoutsMade(long playouts, long nanos) {
+        System.out.printf("MCTS: %d playouts, %.0f playouts/s%n", playouts, playouts / Math.max(nanos / 1e9, 1e-9));
+    }
+
+    @Override
+    public void endgameSolved(int score, boolean isWinLossDraw, long nodes, long nanos) {
+        String result = isWinLossDraw ? (score > 0 ? "win" : score < 0 ? "loss" : "draw") : String.format("%+d", score);
+        System.out.printf("Endgame solved: %s (%d nodes, %.3f s)%n", result, nodes, nanos / 1e9);
+    }
+}
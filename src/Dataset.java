@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Dataset of the labelled positions for the evaluation tuning, memory-mapped for reading
+ * File format: header (magic, version), then samples of SAMPLE_SIZE bytes: player disks, opponent disks
+ * (the player to move first), score of the position for the player to move (short, in hundredths of disks).
+ * Fixed size samples let the readers split the file between threads without parsing it.
+ */
+public final class Dataset {
+    /** Default dataset file (in the working directory) */
+    public static final Path DEFAULT_PATH = Path.of("dataset.bin");
+
+    /** First bytes of the dataset file ("RVDS") */
+    static final int MAGIC = 0x52564453;
+
+    /** Version of the file format */
+    static final int VERSION = 1;
+
+    /** Size of the file header in bytes */
+    static final int HEADER_SIZE = 8;
+
+    /** Size of the sample in bytes */
+    static final int SAMPLE_SIZE = 18;
+
+    /**
+     * Labelled position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param score score of the position for the player to move (in hundredths of disks)
+     */
+    public record Sample(long player, long opponent, int score) {}
+
+    /** Mapped dataset file */
+    private final MappedByteBuffer buffer;
+
+    /** Number of the samples */
+    private final int size;
+
+    /**
+     * Constructor of the dataset
+     * @param buffer mapped dataset file
+     * @param size number of the samples
+     */
+    private Dataset(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Map the dataset file into memory (up to 2 GB, about 119 million samples)
+     * @param path path to the dataset file
+     * @return dataset
+     * @throws IOException if the file can not be read or has wrong format
+     */
+    public static Dataset open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE
+                    || (length - HEADER_SIZE) % SAMPLE_SIZE != 0) {
+                throw new IOException("Wrong dataset format: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Wrong dataset format: " + path);
+            }
+            return new Dataset(buffer, (int) ((length - HEADER_SIZE) / SAMPLE_SIZE));
+        }
+    }
+
+    /**
+     * Get number of the samples
+     * @return number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get disks of the player to move of the sample
+     * @param index index of the sample
+     * @return disks
+     */
+    public long player(int index) {
+        return buffer.getLong(HEADER_SIZE + index * SAMPLE_SIZE);
+    }
+
+    /**
+     * Get disks of the opponent of the sample
+     * @param index index of the sample
+     * @return disks
+     */
+    public long opponent(int index) {
+        return buffer.getLong(HEADER_SIZE + index * SAMPLE_SIZE + 8);
+    }
+
+    /**
+     * Get score of the sample
+     * @param index index of the sample
+     * @return score for the player to move (in hundredths of disks)
+     */
+    public int score(int index) {
+        return buffer.getShort(HEADER_SIZE + index * SAMPLE_SIZE + 16);
+    }
+
+    /**
+     * Get the sample
+     * @param index index of the sample
+     * @return sample
+     */
+    public Sample get(int index) {
+        return new Sample(player(index), opponent(index), score(index));
+    }
+}
@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generator of the dataset for the evaluation tuning from the self-play games
+ * Pipeline: self-play games of the AI (random opening plies and random moves for variety) are played
+ * in parallel, positions are sampled from every game, duplicates are dropped by the set of the hashes
+ * of the canonical positions (the same for all 8 board symmetries), new positions are labelled
+ * by the final disks difference or by the search and streamed to the dataset file.
+ * Memory is bounded: the set has a fixed size, the games are submitted within a fixed window
+ * and the samples go to the file by batches.
+ */
+public class DatasetGenerator {
+    /** Limit of the probes of the hash set (the position is taken as new if no slot is found) */
+    private static final int MAX_PROBES = 64;
+
+    /** Number of the games in progress per thread (the games are submitted within this window) */
+    private static final int WINDOW_PER_THREAD = 4;
+
+    /** Settings of the AI playing the games */
+    private final EngineSettings engine;
+
+    /** Number of random plies of the opening */
+    private final int randomPlies;
+
+    /** Probability of the random move after the opening */
+    private final double randomness;
+
+    /** Number of the positions sampled from every game (on average) */
+    private final int samples;
+
+    /** Search depth of the labels (0 = final disks difference of the game) */
+    private final int labelDepth;
+
+    /** Writer of the dataset */
+    private final DatasetWriter writer;
+
+    /** Hashes of the canonical positions (0 = empty slot), open addressing */
+    private final AtomicLongArray hashes;
+
+    /** Fields of the AI owned by the current thread */
+    private final ThreadLocal<Field> fields = ThreadLocal.withInitial(Field::new);
+
+    /** Search engines of the labels owned by the current thread */
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    /** Endgame solvers of the labels owned by the current thread */
+    private final ThreadLocal<EndgameSolver> solvers = ThreadLocal.withInitial(EndgameSolver::new);
+
+    /** Number of the played games */
+    private final LongAdder games = new LongAdder();
+
+    /** Number of the sampled positions */
+    private final LongAdder sampled = new LongAdder();
+
+    /** Number of the dropped duplicates */
+    private final LongAdder duplicates = new LongAdder();
+
+    /** Number of the written positions */
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * Constructor of the generator
+     * @param engine settings of the AI playing the games
+     * @param randomPlies number of random plies of the opening
+     * @param randomness probability of the random move after the opening
+     * @param samples number of the positions sampled from every game
+     * @param labelDepth search depth of the labels (0 = final disks difference of the game)
+     * @param dedupMegabytes memory budget of the duplicates set (in megabytes)
+     * @param writer writer of the dataset
+     */
+    public DatasetGenerator(EngineSettings engine, int randomPlies, double randomness, int samples, int labelDepth,
+                            int dedupMegabytes, DatasetWriter writer) {
+        this.engine = engine;
+        this.randomPlies = randomPlies;
+        this.randomness = randomness;
+        this.samples = samples;
+        this.labelDepth = labelDepth;
+        this.writer = writer;
+        hashes = new AtomicLongArray(Integer.highestOneBit(Math.max(1, dedupMegabytes) * (1 << 20) / 8));
+    }
+
+    /**
+     * Add the position to the set of the known positions
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return true if the position is new
+     */
+    boolean add(long player, long opponent) {
+        int symmetry = OpeningBook.canonicalSymmetry(player, opponent);
+        long hash = hash(BitBoard.transform(player, symmetry), BitBoard.transform(opponent, symmetry));
+        int mask = hashes.length() - 1;
+        for (int i = 0, slot = (int) hash & mask; i < MAX_PROBES; i++, slot = (slot + 1) & mask) {
+            if (hashes.get(slot) == 0 && hashes.compareAndSet(slot, 0, hash)) {
+                return true;
+            }
+            if (hashes.get(slot) == hash) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get 64-bit hash of the position (never 0)
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return hash
+     */
+    private static long hash(long player, long opponent) {
+        long hash = player * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opponent * 0xC2B2AE3D27D4EB4FL, 31);
+        hash ^= hash >>> 29;
+        hash *= 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 32;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Label the position by the search (exactly by the endgame solver near the end)
+     * The only possible move is made before the search, because the search does not score it.
+     * @param position position to label (the player to move has possible moves)
+     * @return score for the player to move (in hundredths of disks)
+     */
+    int searchLabel(Position position) {
+        long moves = BitBoard.legalMoves(position.player(), position.opponent());
+        if (Long.bitCount(moves) == 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            long changed = (1L << square) | BitBoard.flips(position.player(), position.opponent(), square);
+            long player = position.opponent() & ~changed;
+            long opponent = position.player() | changed;
+            if (BitBoard.legalMoves(player, opponent) != 0) {
+                return -searchLabel(new Position(position.isBlackGo() ? opponent : player,
+                        position.isBlackGo() ? player : opponent, !position.isBlackGo()));
+            }
+            if (BitBoard.legalMoves(opponent, player) != 0) {
+                return searchLabel(new Position(position.isBlackGo() ? opponent : player,
+                        position.isBlackGo() ? player : opponent, position.isBlackGo()));
+            }
+            return Search.finalScore(opponent, player);
+        }
+        if (Long.bitCount(~(position.black() | position.white())) <= EndgameSolver.DEFAULT_THRESHOLD) {
+            EndgameSolver solver = solvers.get();
+            solver.solve(position.player(), position.opponent(), false);
+            return solver.getScore() * Search.SCORE_SCALE;
+        }
+        Search search = searches.get();
+        search.setMaxDepth(labelDepth);
+        search.setTimeMillis(0);
+        search.findMove(position.black(), position.white(), position.isBlackGo());
+        return Search.diskScore(search.getBestScore());
+    }
+
+    /**
+     * Play one self-play game and write its new sampled positions
+     * @param seed seed of the random moves
+     */
+    private void play(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Field field = fields.get();
+        field.resetField();
+        field.setGameMode(Game.GameMode.COMPUTER_VS_COMPUTER);
+        engine.apply(field);
+        for (int ply = 0; !field.hasGameEnded(); ply++) {
+            Position position = field.getPosition();
+            long moves = BitBoard.legalMoves(position.player(), position.opponent());
+            if (moves != 0 && (ply < randomPlies || random.nextDouble() < randomness)) {
+                for (int i = random.nextInt(Long.bitCount(moves)); i > 0; i--) {
+                    moves &= moves - 1;
+                }
+                field.move(BitBoard.toPoint(Long.numberOfTrailingZeros(moves)));
+            } else {
+                field.move();
+            }
+        }
+        games.increment();
+        GameHistory history = field.getHistory();
+        Position end = history.getPosition(history.getPly());
+        int blackDifference = Long.bitCount(end.black()) - Long.bitCount(end.white());
+        double share = (double) samples / Math.max(1, history.getPly());
+        for (int ply = 0; ply < history.getPly(); ply++) {
+            if (history.getPossibleMoves(ply) == 0 || random.nextDouble() >= share) {
+                continue;
+            }
+            sampled.increment();
+            Position position = history.getPosition(ply);
+            if (!add(position.player(), position.opponent())) {
+                duplicates.increment();
+                continue;
+            }
+            int score = labelDepth > 0 ? searchLabel(position)
+                    : (position.isBlackGo() ? blackDifference : -blackDifference) * Search.SCORE_SCALE;
+            try {
+                writer.write(new Dataset.Sample(position.player(), position.opponent(), score));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written.increment();
+        }
+    }
+
+    /**
+     * Play the games in parallel reporting the progress
+     * @param count number of games
+     * @param threads number of threads
+     * @param seed seed of the random moves
+     * @param reportSeconds period of the progress report (in seconds)
+     */
+    public void generate(int count, int threads, long seed, int reportSeconds) {
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "dataset-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(progress(start)), reportSeconds, reportSeconds,
+                TimeUnit.SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        ArrayDeque<Future<?>> pending = new ArrayDeque<>();
+        try {
+            for (int game = 0; game < count; game++) {
+                if (pending.size() >= Math.max(1, threads) * WINDOW_PER_THREAD) {
+                    pending.removeFirst().get();
+                }
+                long gameSeed = seed + game;
+                pending.addLast(executor.submit(() -> play(gameSeed)));
+            }
+            while (!pending.isEmpty()) {
+                pending.removeFirst().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+        }
+        System.out.println(progress(start));
+    }
+
+    /**
+     * Get the progress line
+     * @param start start time of the generation (in nanoseconds)
+     * @return games, positions, positions per second and the duplicates ratio
+     */
+    private String progress(long start) {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        long sampledCount = sampled.sum();
+        return String.format("%d games, %d positions written (%.0f positions/s), %d duplicates of %d sampled "
+                        + "(%.1f%%)", games.sum(), written.sum(), written.sum() / seconds, duplicates.sum(),
+                sampledCount, 100.0 * duplicates.sum() / Math.max(1, sampledCount));
+    }
+
+    /**
+     * Main function
+     * @param args path to the dataset file (extended if exists), then options engine=LEVEL[:budget],
+     *             games=N, threads=N, random=N (opening plies), randomness=P, samples=N,
+     *             label=result or label=search:DEPTH, dedup=MB, report=SECONDS, seed=N
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java DatasetGenerator <dataset> [engine=EXPERT:4] [games=1000] [threads=N] "
+                    + "[random=8] [randomness=0.1] [samples=8] [label=result|search:DEPTH] [dedup=64] [report=5] "
+                    + "[seed=1]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        Path path = Path.of(args[0]);
+        String label = options.getOrDefault("label", "result");
+        int labelDepth = label.startsWith("search:") ? Integer.parseInt(label.substring("search:".length())) : 0;
+        try (DatasetWriter writer = new DatasetWriter(path)) {
+            DatasetGenerator generator = new DatasetGenerator(
+                    EngineSettings.parse(options.getOrDefault("engine", "EXPERT:4")),
+                    Integer.parseInt(options.getOrDefault("random", "8")),
+                    Double.parseDouble(options.getOrDefault("randomness", "0.1")),
+                    Integer.parseInt(options.getOrDefault("samples", "8")),
+                    labelDepth,
+                    Integer.parseInt(options.getOrDefault("dedup", "64")),
+                    writer);
+            if (Files.size(path) > Dataset.HEADER_SIZE) {
+                Dataset dataset = Dataset.open(path);
+                for (int i = 0; i < dataset.size(); i++) {
+                    generator.add(dataset.player(i), dataset.opponent(i));
+                }
+            }
+            generator.generate(Integer.parseInt(options.getOrDefault("games", "1000")),
+                    Integer.parseInt(options.getOrDefault("threads",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Long.parseLong(options.getOrDefault("seed", "1")),
+                    Integer.parseInt(options.getOrDefault("report", "5")));
+        }
+    }
+}
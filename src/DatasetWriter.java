@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer appending the samples to the dataset file
+ * Samples are collected in the buffer and written to the file channel by batches, so the memory
+ * is bounded by the buffer. Several threads may share one writer.
+ */
+public class DatasetWriter implements AutoCloseable {
+    /** Size of the batch buffer in bytes (whole samples) */
+    private static final int BATCH_SIZE = (GameRecordWriter.BATCH_SIZE / Dataset.SAMPLE_SIZE) * Dataset.SAMPLE_SIZE;
+
+    /** Channel of the dataset file */
+    private final FileChannel channel;
+
+    /** Batch of the samples to write */
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE);
+
+    /** Number of the written samples */
+    private long samples;
+
+    /**
+     * Constructor of the writer (the file is created if it does not exist)
+     * @param path path to the dataset file
+     * @throws IOException if the file can not be opened or is not a dataset file
+     */
+    public DatasetWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(Dataset.HEADER_SIZE);
+                header.putInt(Dataset.MAGIC).putInt(Dataset.VERSION).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(Dataset.HEADER_SIZE);
+                int read = 0;
+                while (header.hasRemaining() && read >= 0) {
+                    read = channel.read(header, header.position());
+                }
+                if (header.hasRemaining() || header.getInt(0) != Dataset.MAGIC || header.getInt(4) != Dataset.VERSION
+                        || (channel.size() - Dataset.HEADER_SIZE) % Dataset.SAMPLE_SIZE != 0) {
+                    throw new IOException("Wrong dataset format: " + path);
+                }
+                channel.position(channel.size());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add the sample to the batch (the batch is written when it is full)
+     * @param sample labelled position
+     */
+    public synchronized void write(Dataset.Sample sample) throws IOException {
+        if (!batch.hasRemaining()) {
+            flush();
+        }
+        batch.putLong(sample.player()).putLong(sample.opponent())
+                .putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample.score())));
+        samples++;
+    }
+
+    /**
+     * Write the batch to the file
+     */
+    public synchronized void flush() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Get number of the samples written by the writer
+     * @return number of samples
+     */
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+}
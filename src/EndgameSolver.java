@@ -0,0 +1,431 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Exact endgame solver (perfect play to the end of the game)
+ * Scores are disks differences for the player to move (principal variation search).
+ * Move ordering: the transposition table move, then fastest-first (the least opponent replies) with many empties,
+ * parity (moves into the regions with odd number of empties first) with few empties;
+ * the last 4 empties are searched without move generation.
+ * Win/loss/draw mode searches with the null window around zero, so it cuts much more than the exact mode.
+ * With the time limit the solve is aborted at the deadline (its move and score are not valid then).
+ */
+public final class EndgameSolver {
+    /** Default number of empties to start the solver with */
+    public static final int DEFAULT_THRESHOLD = 14;
+
+    /** Max score of the game (disks difference) */
+    private static final int MAX_SCORE = BitBoard.SQUARES;
+
+    /** Least number of empties for the fastest-first ordering (parity ordering below) */
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    /** Least number of empties for the transposition table */
+    private static final int HASH_EMPTIES = 9;
+
+    /** Number of empties searched without move generation */
+    private static final int SMALL_EMPTIES = 4;
+
+    /** Memory budget of the transposition table in megabytes */
+    private static final int HASH_SIZE = 4;
+
+    /** Board quadrants (for the parity) */
+    private static final long[] QUADRANTS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L
+    };
+
+    /** Corners (preferred by fastest-first ordering) */
+    private static final long CORNERS = 0x8100000000000081L;
+
+    /** Number of nodes between the checks of the time */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /** Cache of the solved positions */
+    private final TranspositionTable table = new TranspositionTable(HASH_SIZE);
+
+    /** Buffer of the moves (SQUARES cells for every number of empties) */
+    private final int[] moves = new int[(BitBoard.SQUARES + 1) * BitBoard.SQUARES];
+
+    /** Buffer of the move ordering keys (same layout as moves) */
+    private final int[] keys = new int[(BitBoard.SQUARES + 1) * BitBoard.SQUARES];
+
+    /** Number of visited nodes of the last solve */
+    private long nodes;
+
+    /** Duration of the last solve in nanoseconds */
+    private long solveNanos;
+
+    /** Score of the last solve (sign only in the win/loss/draw mode) */
+    private int score;
+
+    /** Time limit of the solve in milliseconds (0 = no limit) */
+    private long timeMillis = 0;
+
+    /** Deadline of the current solve (System.nanoTime, 0 = no deadline) */
+    private long deadline;
+
+    /** Number of nodes of the next check of the time */
+    private long nextTimeCheck;
+
+    /** Flag if the last solve was aborted at the deadline */
+    private boolean isAborted;
+
+    /**
+     * Set time limit of the solve
+     * @param timeMillis time in milliseconds (0 = no limit)
+     */
+    public void setTimeMillis(long timeMillis) {
+        this.timeMillis = Math.max(0, timeMillis);
+    }
+
+    /**
+     * Check if the last solve was aborted at the deadline (its move and score are not valid)
+     * @return true if the solve is aborted
+     */
+    public boolean isAborted() {
+        return isAborted;
+    }
+
+    /**
+     * Solve the position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param isWinLossDraw flag if only the sign of the score is needed
+     * @return square of the best move (-1 if player has to pass or the solve is aborted)
+     */
+    public int solve(long player, long opponent, boolean isWinLossDraw) {
+        long start = System.nanoTime();
+        table.newSearch();
+        nodes = 1;
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000 : 0;
+        nextTimeCheck = TIME_CHECK_INTERVAL;
+        isAborted = false;
+        int alpha = isWinLossDraw ? -1 : -MAX_SCORE - 1;
+        int beta = isWinLossDraw ? 1 : MAX_SCORE + 1;
+        int bestMove = -1;
+        int bestScore;
+        long legal = BitBoard.legalMoves(player, opponent);
+        if (legal == 0) {
+            bestScore = BitBoard.legalMoves(opponent, player) == 0
+                    ? finalScore(player, opponent)
+                    : -solve(opponent, player, -beta, -alpha, true);
+        } else {
+            int empties = Long.bitCount(~(player | opponent));
+            int count = orderMoves(player, opponent, legal, empties, -1);
+            int offset = empties * BitBoard.SQUARES;
+            bestScore = -MAX_SCORE - 1;
+            for (int i = 0; i < count && bestScore < beta; i++) {
+                int square = moves[offset + i];
+                long flips = BitBoard.flips(player, opponent, square);
+                int result = -solve(opponent & ~flips, player | flips | (1L << square),
+                        -beta, -Math.max(alpha, bestScore), false);
+                if (isAborted) {
+                    bestMove = -1;
+                    bestScore = 0;
+                    break;
+                }
+                if (result > bestScore) {
+                    bestScore = result;
+                    bestMove = square;
+                }
+            }
+        }
+        score = isWinLossDraw ? Integer.signum(bestScore) : bestScore;
+        solveNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    /**
+     * Search the position to the end of the game (fail-soft alpha-beta)
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param alpha lower bound of the score
+     * @param beta upper bound of the score
+     * @param isPassed flag if the previous ply was pass
+     * @return score for the player to move
+     */
+    private int solve(long player, long opponent, int alpha, int beta, boolean isPassed) {
+        long empty = ~(player | opponent);
+        int empties = Long.bitCount(empty);
+        if (empties <= SMALL_EMPTIES) {
+            return solveSmall(player, opponent, empty, alpha, beta, isPassed);
+        }
+        nodes++;
+        if (deadline != 0 && nodes >= nextTimeCheck) {
+            nextTimeCheck = nodes + TIME_CHECK_INTERVAL;
+            isAborted = System.nanoTime() > deadline;
+        }
+        if (isAborted) {
+            return 0;
+        }
+        long legal = BitBoard.legalMoves(player, opponent);
+        if (legal == 0) {
+            if (isPassed) {
+                return finalScore(player, opponent);
+            }
+            return -solve(opponent, player, -beta, -alpha, true);
+        }
+        long hash = 0;
+        int hashMove = -1;
+        if (empties >= HASH_EMPTIES) {
+            hash = Zobrist.hash(player, opponent, true);
+            long entry = table.probe(hash);
+            if (entry != 0) {
+                int stored = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && stored >= beta
+                        || bound == TranspositionTable.UPPER && stored <= alpha) {
+                    return stored;
+                }
+                hashMove = TranspositionTable.move(entry);
+            }
+        }
+        int count = orderMoves(player, opponent, legal, empties, hashMove);
+        int offset = empties * BitBoard.SQUARES;
+        int bestScore = -MAX_SCORE - 1;
+        int bestMove = -1;
+        int lowerBound = alpha;
+        for (int i = 0; i < count; i++) {
+            int square = moves[offset + i];
+            long flips = BitBoard.flips(player, opponent, square);
+            long nextPlayer = opponent & ~flips;
+            long nextOpponent = player | flips | (1L << square);
+            int result;
+            if (i == 0) {
+                result = -solve(nextPlayer, nextOpponent, -beta, -lowerBound, false);
+            } else {
+                result = -solve(nextPlayer, nextOpponent, -lowerBound - 1, -lowerBound, false);
+                if (result > lowerBound && result < beta) {
+                    result = -solve(nextPlayer, nextOpponent, -beta, -lowerBound, false);
+                }
+            }
+            if (isAborted) {
+                return 0;
+            }
+            if (result > bestScore) {
+                bestScore = result;
+                bestMove = square;
+                if (result >= beta) {
+                    break;
+                }
+                lowerBound = Math.max(lowerBound, result);
+            }
+        }
+        if (empties >= HASH_EMPTIES) {
+            int bound = bestScore >= beta ? TranspositionTable.LOWER
+                    : bestScore <= alpha ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+            table.store(hash, empties, bound, bestScore, bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Search the position with the last empties (moves are tried directly on the empty squares,
+     * the squares of the regions with odd number of empties go first)
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param empty mask of the empty squares
+     * @param alpha lower bound of the score
+     * @param beta upper bound of the score
+     * @param isPassed flag if the previous ply was pass
+     * @return score for the player to move
+     */
+    private int solveSmall(long player, long opponent, long empty, int alpha, int beta, boolean isPassed) {
+        nodes++;
+        if (empty == 0) {
+            return finalScore(player, opponent);
+        }
+        if ((empty & (empty - 1)) == 0) {
+            return solveLast(player, opponent, Long.numberOfTrailingZeros(empty));
+        }
+        long odd = 0;
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= empty & quadrant;
+            }
+        }
+        int bestScore = -MAX_SCORE - 1;
+        int lowerBound = alpha;
+        for (int pass = 0; pass < 2; pass++) {
+            for (long rest = pass == 0 ? odd : empty & ~odd; rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
+                long flips = BitBoard.flips(player, opponent, square);
+                if (flips == 0) {
+                    continue;
+                }
+                long bit = 1L << square;
+                int result = -solveSmall(opponent & ~flips, player | flips | bit, empty & ~bit,
+                        -beta, -lowerBound, false);
+                if (result > bestScore) {
+                    bestScore = result;
+                    if (result >= beta) {
+                        return bestScore;
+                    }
+                    lowerBound = Math.max(lowerBound, result);
+                }
+            }
+        }
+        if (bestScore == -MAX_SCORE - 1) {
+            if (isPassed) {
+                return finalScore(player, opponent);
+            }
+            return -solveSmall(opponent, player, empty, -beta, -alpha, true);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Get score of the position with the last empty square
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param square the last empty square
+     * @return score for the player to move
+     */
+    private int solveLast(long player, long opponent, int square) {
+        int score = Long.bitCount(player) - Long.bitCount(opponent);
+        long flips = BitBoard.flips(player, opponent, square);
+        if (flips != 0) {
+            return score + 2 * Long.bitCount(flips) + 1;
+        }
+        flips = BitBoard.flips(opponent, player, square);
+        if (flips != 0) {
+            return score - 2 * Long.bitCount(flips) - 1;
+        }
+        return score;
+    }
+
+    /**
+     * Generate and order the moves into the buffer of the given number of empties
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param legal mask of the legal moves
+     * @param empties number of empty squares
+     * @param hashMove move of the transposition table (-1 if there is no move)
+     * @return number of moves
+     */
+    private int orderMoves(long player, long opponent, long legal, int empties, int hashMove) {
+        int offset = empties * BitBoard.SQUARES;
+        long odd = 0;
+        if (empties < FASTEST_FIRST_EMPTIES) {
+            long empty = ~(player | opponent);
+            for (long quadrant : QUADRANTS) {
+                if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                    odd |= quadrant;
+                }
+            }
+        }
+        int count = 0;
+        for (; legal != 0; legal &= legal - 1) {
+            int square = Long.numberOfTrailingZeros(legal);
+            long bit = 1L << square;
+            int key;
+            if (square == hashMove) {
+                key = Integer.MIN_VALUE;
+            } else if (empties >= FASTEST_FIRST_EMPTIES) {
+                long flips = BitBoard.flips(player, opponent, square);
+                key = Long.bitCount(BitBoard.legalMoves(opponent & ~flips, player | flips | bit)) * 2
+                        - ((bit & CORNERS) != 0 ? 1 : 0);
+            } else {
+                key = (odd & bit) != 0 ? 0 : 1;
+            }
+            int i = count++;
+            for (; i > 0 && keys[offset + i - 1] > key; i--) {
+                keys[offset + i] = keys[offset + i - 1];
+                moves[offset + i] = moves[offset + i - 1];
+            }
+            keys[offset + i] = key;
+            moves[offset + i] = square;
+        }
+        return count;
+    }
+
+    /**
+     * Get disks difference of the finished game
+     * @param player disks of the player
+     * @param opponent disks of the opponent
+     * @return disks difference for the player
+     */
+    private static int finalScore(long player, long opponent) {
+        return Long.bitCount(player) - Long.bitCount(opponent);
+    }
+
+    /**
+     * Get score of the last solve
+     * @return disks difference for the player to move (-1, 0 or 1 in the win/loss/draw mode)
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get number of visited nodes of the last solve
+     * @return number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get duration of the last solve
+     * @return duration in nanoseconds
+     */
+    public long getSolveNanos() {
+        return solveNanos;
+    }
+
+    /**
+     * Main function: solve random positions with the given number of empties and print nodes and time
+     * (to choose the solver threshold for the move time budget)
+     * @param args number of empties, then options positions=N, wld, seed=N
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java EndgameSolver <empties> [positions=10] [wld] [seed=1]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        int empties = Integer.parseInt(args[0]);
+        int positions = Integer.parseInt(options.getOrDefault("positions", "10"));
+        boolean isWinLossDraw = options.containsKey("wld");
+        SplittableRandom random = new SplittableRandom(Long.parseLong(options.getOrDefault("seed", "1")));
+        EndgameSolver solver = new EndgameSolver();
+        SearchBoard board = new SearchBoard();
+        long totalNodes = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        for (int solved = 0; solved < positions; ) {
+            board.set(Position.START);
+            while (board.empties() > empties) {
+                int count = board.generateMoves();
+                if (count > 0) {
+                    board.make(board.move(random.nextInt(count)));
+                } else if (BitBoard.legalMoves(board.opponent(), board.player()) != 0) {
+                    board.makePass();
+                } else {
+                    break;
+                }
+            }
+            if (board.empties() != empties || board.generateMoves() == 0) {
+                continue;
+            }
+            int square = solver.solve(board.player(), board.opponent(), isWinLossDraw);
+            Position position = new Position(board.isBlack() ? board.player() : board.opponent(),
+                    board.isBlack() ? board.opponent() : board.player(), board.isBlack());
+            System.out.printf("%s  move %s, score %+d, %d nodes, %.3f s%n", position, BitBoard.toPoint(square),
+                    solver.getScore(), solver.getNodes(), solver.getSolveNanos() / 1e9);
+            totalNodes += solver.getNodes();
+            totalNanos += solver.getSolveNanos();
+            maxNanos = Math.max(maxNanos, solver.getSolveNanos());
+            solved++;
+        }
+        System.out.printf("%d empties (%s): average %.0f nodes, %.3f s, max %.3f s, %.0f nodes/s%n",
+                empties, isWinLossDraw ? "win/loss/draw" : "exact", (double) totalNodes / positions,
+                totalNanos / 1e9 / positions, maxNanos / 1e9, totalNodes / Math.max(totalNanos / 1e9, 1e-9));
+    }
+}
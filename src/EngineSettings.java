@@ -0,0 +1,65 @@
+/**
+ * immutable settings of the AI player
+ * Text format: "LEVEL" or "LEVEL:budget" (search depth for EXPERT, milliseconds per move for MASTER and MCTS),
+ * e.g. "ADVANCED", "EXPERT:8", "MASTER:500", "MCTS:500"
+ * @param level difficulty level
+ * @param depth search depth (for EXPERT)
+ * @param timeMillis search time per move (for MASTER and MCTS)
+ */
+public record EngineSettings(Game.DifficultyLevel level, int depth, long timeMillis) {
+    /** Default search depth */
+    public static final int DEFAULT_DEPTH = 6;
+
+    /** Default search time per move (in milliseconds) */
+    public static final long DEFAULT_TIME = 1000;
+
+    /**
+     * Parse settings from the text format
+     * @param text settings in the text format
+     * @return settings
+     * @throws IllegalArgumentException if the text is not settings
+     */
+    public static EngineSettings parse(String text) {
+        String[] parts = text.strip().split(":");
+        Game.DifficultyLevel level = Game.DifficultyLevel.valueOf(parts[0].toUpperCase());
+        long budget = parts.length > 1 ? Long.parseLong(parts[1]) : -1;
+        return new EngineSettings(level,
+                level == Game.DifficultyLevel.EXPERT && budget > 0 ? (int) budget : DEFAULT_DEPTH,
+                (level == Game.DifficultyLevel.MASTER || level == Game.DifficultyLevel.MCTS) && budget > 0
+                        ? budget : DEFAULT_TIME);
+    }
+
+    /**
+     * Get settings within the limits of the budget
+     * @param maxDepth max search depth
+     * @param maxTimeMillis max search time per move (in milliseconds)
+     * @return settings with the depth and the time not greater than the limits
+     */
+    public EngineSettings limit(int maxDepth, long maxTimeMillis) {
+        return new EngineSettings(level, Math.max(1, Math.min(depth, maxDepth)),
+                Math.max(1, Math.min(timeMillis, maxTimeMillis)));
+    }
+
+    /**
+     * Apply settings to the game
+     * @param game game to set up
+     */
+    public void apply(Game game) {
+        game.setDifficultyLevel(level);
+        game.setSearchDepth(depth);
+        game.setSearchTime(timeMillis);
+    }
+
+    /**
+     * Override toString method
+     * @return settings in the text format
+     */
+    @Override
+    public String toString() {
+        return switch (level) {
+            case EXPERT -> level + ":" + depth;
+            case MASTER, MCTS -> level + ":" + timeMillis;
+            default -> level.toString();
+        };
+    }
+}
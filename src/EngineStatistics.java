@@ -0,0 +1,326 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of the AI moves: nodes, speed, depth, effective branching factor, time, move generations,
+ * evaluations and search cache hits, for the last move and in total, and the percentiles of the time per move
+ * Totals are adders, so games of several threads may share one instance; the engines count per thread
+ * and the field records one sample per move (nothing is counted while the field has no statistics).
+ */
+public class EngineStatistics implements EngineStatisticsMBean {
+    /** Name of the MBean */
+    public static final String OBJECT_NAME = "reversi:type=EngineStatistics";
+
+    /** Number of the latency buckets per doubling of the time (the percentiles are within 5%) */
+    private static final int BUCKETS_PER_OCTAVE = 16;
+
+    /** Number of the latency buckets (from 1 microsecond to about 70 minutes) */
+    private static final int LATENCY_BUCKETS = 32 * BUCKETS_PER_OCTAVE;
+
+    /**
+     * Immutable sample of one AI move
+     * @param nanos time of the move (in nanoseconds)
+     * @param nodes searched nodes (playouts for MCTS, 0 for the book and one-ply moves)
+     * @param depth completed depth (empty cells for the endgame solver, 0 if there is no search)
+     * @param moveGenerations number of the move generations
+     * @param evaluations number of the static evaluations
+     * @param cacheProbes number of the search cache probes
+     * @param cacheHits number of the successful search cache probes
+     */
+    public record Sample(long nanos, long nodes, int depth, long moveGenerations, long evaluations,
+                         long cacheProbes, long cacheHits) {
+        /**
+         * Get number of the searched nodes per second
+         * @return nodes per second
+         */
+        public double nodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        }
+
+        /**
+         * Get effective branching factor (the depth root of the nodes)
+         * @return branching factor (0 if there was no search)
+         */
+        public double branchingFactor() {
+            return depth == 0 || nodes == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+        }
+    }
+
+    /** Number of the moves */
+    private final LongAdder moves = new LongAdder();
+
+    /** Number of the moves with the search depth */
+    private final LongAdder searchedMoves = new LongAdder();
+
+    /** Total time (in nanoseconds) */
+    private final LongAdder nanos = new LongAdder();
+
+    /** Total number of the nodes */
+    private final LongAdder nodes = new LongAdder();
+
+    /** Sum of the depths */
+    private final LongAdder depths = new LongAdder();
+
+    /** Sum of the logarithms of the branching factors */
+    private final DoubleAdder logBranchingFactors = new DoubleAdder();
+
+    /** Total number of the move generations */
+    private final LongAdder moveGenerations = new LongAdder();
+
+    /** Total number of the evaluations */
+    private final LongAdder evaluations = new LongAdder();
+
+    /** Total number of the cache probes */
+    private final LongAdder cacheProbes = new LongAdder();
+
+    /** Total number of the cache hits */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /** Number of the moves by the logarithmic buckets of the time per move */
+    private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS);
+
+    /** Max time of the move (in nanoseconds) */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /** Sample of the last move (null if there are no moves) */
+    private volatile Sample last;
+
+    /** Executor of the periodic log (null if there is no log) */
+    private ScheduledExecutorService logger;
+
+    /**
+     * Record the AI move
+     * @param sample sample of the move
+     */
+    public void record(Sample sample) {
+        moves.increment();
+        nanos.add(sample.nanos());
+        nodes.add(sample.nodes());
+        if (sample.depth() > 0 && sample.nodes() > 0) {
+            searchedMoves.increment();
+            depths.add(sample.depth());
+            logBranchingFactors.add(Math.log(sample.branchingFactor()));
+        }
+        moveGenerations.add(sample.moveGenerations());
+        evaluations.add(sample.evaluations());
+        cacheProbes.add(sample.cacheProbes());
+        cacheHits.add(sample.cacheHits());
+        latencies.incrementAndGet(latencyBucket(sample.nanos()));
+        maxNanos.accumulate(sample.nanos());
+        last = sample;
+    }
+
+    /**
+     * Get the latency bucket of the time
+     * @param nanos time of the move (in nanoseconds)
+     * @return number of the bucket
+     */
+    private static int latencyBucket(long nanos) {
+        double micros = Math.max(1, nanos / 1000.0);
+        return (int) Math.min(LATENCY_BUCKETS - 1, Math.log(micros) / Math.log(2) * BUCKETS_PER_OCTAVE);
+    }
+
+    /**
+     * Get the percentile of the time per move (the upper bound of its bucket, but not more than the max time)
+     * @param percentile percentile (0..100)
+     * @return time in milliseconds (0 if there are no moves)
+     */
+    public double getLatencyMillis(double percentile) {
+        long count = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            count += latencies.get(i);
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS && count > 0; i++) {
+            seen += latencies.get(i);
+            if (seen >= rank) {
+                double upperMicros = Math.pow(2, (double) (i + 1) / BUCKETS_PER_OCTAVE);
+                return Math.min(upperMicros / 1000, maxNanos.get() / 1e6);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return getLatencyMillis(50);
+    }
+
+    @Override
+    public double getLatencyP90Millis() {
+        return getLatencyMillis(90);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return getLatencyMillis(99);
+    }
+
+    @Override
+    public double getMaxMoveMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        long time = nanos.sum();
+        return time == 0 ? 0 : nodes.sum() * 1e9 / time;
+    }
+
+    @Override
+    public double getAverageDepth() {
+        long count = searchedMoves.sum();
+        return count == 0 ? 0 : (double) depths.sum() / count;
+    }
+
+    @Override
+    public double getBranchingFactor() {
+        long count = searchedMoves.sum();
+        return count == 0 ? 0 : Math.exp(logBranchingFactors.sum() / count);
+    }
+
+    @Override
+    public double getAverageMoveMillis() {
+        long count = moves.sum();
+        return count == 0 ? 0 : nanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public long getMoveGenerations() {
+        return moveGenerations.sum();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long probes = cacheProbes.sum();
+        return probes == 0 ? 0 : (double) cacheHits.sum() / probes;
+    }
+
+    @Override
+    public double getLastMoveMillis() {
+        Sample sample = last;
+        return sample == null ? 0 : sample.nanos() / 1e6;
+    }
+
+    @Override
+    public long getLastNodes() {
+        Sample sample = last;
+        return sample == null ? 0 : sample.nodes();
+    }
+
+    @Override
+    public int getLastDepth() {
+        Sample sample = last;
+        return sample == null ? 0 : sample.depth();
+    }
+
+    @Override
+    public double getLastNodesPerSecond() {
+        Sample sample = last;
+        return sample == null ? 0 : sample.nodesPerSecond();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] {moves, searchedMoves, nanos, nodes, depths, moveGenerations,
+                evaluations, cacheProbes, cacheHits}) {
+            adder.reset();
+        }
+        logBranchingFactors.reset();
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latencies.set(i, 0);
+        }
+        maxNanos.reset();
+        last = null;
+    }
+
+    /**
+     * Start printing the statistics line periodically (to the standard error stream)
+     * @param periodMillis period of the log (in milliseconds)
+     */
+    public synchronized void startLogging(long periodMillis) {
+        stopLogging();
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "engine-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> System.err.println(summary()), periodMillis, periodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic log
+     */
+    public synchronized void stopLogging() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+        }
+    }
+
+    /**
+     * Get one line summary of the statistics
+     * @return summary
+     */
+    public String summary() {
+        return String.format("Engine: %d moves, %d nodes, %.0f nodes/s, depth %.1f, EBF %.2f, %.1f ms/move, "
+                        + "cache hits %.1f%%, %s", getMoves(), getNodes(), getNodesPerSecond(), getAverageDepth(),
+                getBranchingFactor(), getAverageMoveMillis(), 100 * getCacheHitRate(), latencies());
+    }
+
+    /**
+     * Get the line of the time per move percentiles
+     * @return percentiles and the max time
+     */
+    public String latencies() {
+        return String.format("move time p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms", getLatencyP50Millis(),
+                getLatencyP90Millis(), getLatencyP99Millis(), getMaxMoveMillis());
+    }
+
+    /**
+     * Override toString method
+     * @return report of the statistics (the last move and the totals)
+     */
+    @Override
+    public String toString() {
+        Sample sample = last;
+        if (sample == null) {
+            return "No AI moves recorded";
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("Last move: %d nodes, depth %d, EBF %.2f, %.1f ms, %.0f nodes/s%n",
+                sample.nodes(), sample.depth(), sample.branchingFactor(), sample.nanos() / 1e6,
+                sample.nodesPerSecond()));
+        result.append(String.format("Total: %d moves, %d nodes, %.0f nodes/s, %.1f ms/move%n",
+                getMoves(), getNodes(), getNodesPerSecond(), getAverageMoveMillis()));
+        result.append(String.format("Search: average depth %.1f, average EBF %.2f%n",
+                getAverageDepth(), getBranchingFactor()));
+        result.append(String.format("Latency: %s%n", latencies()));
+        result.append(String.format("Move generations: %d, evaluations: %d, cache hits: %d of %d (%.1f%%)",
+                getMoveGenerations(), getEvaluations(), cacheHits.sum(), cacheProbes.sum(),
+                100 * getCacheHitRate()));
+        return result.toString();
+    }
+}
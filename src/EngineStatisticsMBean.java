@@ -0,0 +1,58 @@
+/**
+ * Management interface of the engine statistics (JMX)
+ */
+public interface EngineStatisticsMBean {
+    /** Get number of the recorded AI moves */
+    long getMoves();
+
+    /** Get total number of the searched nodes (playouts for MCTS) */
+    long getNodes();
+
+    /** Get average number of the searched nodes per second */
+    double getNodesPerSecond();
+
+    /** Get average depth of the searched moves */
+    double getAverageDepth();
+
+    /** Get average effective branching factor of the searched moves */
+    double getBranchingFactor();
+
+    /** Get average time per move (in milliseconds) */
+    double getAverageMoveMillis();
+
+    /** Get total number of the move generations */
+    long getMoveGenerations();
+
+    /** Get total number of the static evaluations */
+    long getEvaluations();
+
+    /** Get median time per move (in milliseconds) */
+    double getLatencyP50Millis();
+
+    /** Get 90th percentile of the time per move (in milliseconds) */
+    double getLatencyP90Millis();
+
+    /** Get 99th percentile of the time per move (in milliseconds) */
+    double getLatencyP99Millis();
+
+    /** Get max time per move (in milliseconds) */
+    double getMaxMoveMillis();
+
+    /** Get share of the successful search cache probes (0..1) */
+    double getCacheHitRate();
+
+    /** Get time of the last move (in milliseconds) */
+    double getLastMoveMillis();
+
+    /** Get number of the searched nodes of the last move */
+    long getLastNodes();
+
+    /** Get depth of the last move */
+    int getLastDepth();
+
+    /** Get number of the searched nodes per second of the last move */
+    double getLastNodesPerSecond();
+
+    /** Forget all the recorded moves */
+    void reset();
+}
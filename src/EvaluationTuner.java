@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tuner of the pattern evaluator weights over the memory-mapped dataset
+ * Evaluation is linear in the weights, so every epoch is one parallel pass: threads take equal ranges
+ * of the dataset, accumulate their own gradient and Gauss-Newton diagonal of the loss, then the sums
+ * are merged and every weight makes the step of the gradient divided by the diagonal.
+ * Loss: least squares of the score, or (logistic) of the win probabilities sigmoid(score / scale), plus
+ * the L2 regularization which keeps the rarely seen weights from fitting the noise.
+ * Every HOLDOUT-th sample is not trained on and gives the validation loss.
+ */
+public class EvaluationTuner {
+    /** Dataset of the labelled positions */
+    private final Dataset dataset;
+
+    /** Weights being tuned (by the phases) */
+    private final double[][] weights = new double[PatternEvaluator.PHASES][PatternEvaluator.SIZE];
+
+    /** Number of the threads */
+    private final int threads;
+
+    /** Flag of the logistic loss (otherwise least squares of the score) */
+    private final boolean isLogistic;
+
+    /** Scale of the score in the logistic loss (in hundredths of disks) */
+    private final double scale;
+
+    /** Step of the weights (share of the Gauss-Newton step) */
+    private final double rate;
+
+    /** Every holdout-th sample is used for the validation only (0 = no validation) */
+    private final int holdout;
+
+    /** Weight of the L2 regularization (in samples: a weight seen that many times moves half way) */
+    private double regularization;
+
+    /** Accumulators of the threads */
+    private final Accumulator[] accumulators;
+
+    /**
+     * Loss of one epoch
+     * @param training loss of the trained samples
+     * @param validation loss of the validation samples (NaN if there is no validation)
+     */
+    public record Loss(double training, double validation) {}
+
+    /**
+     * Gradient and loss sums of one thread
+     */
+    private static final class Accumulator {
+        /** Gradient of the loss by the weights */
+        private final double[] gradient = new double[PatternEvaluator.PHASES * PatternEvaluator.SIZE];
+
+        /** Gauss-Newton diagonal of the loss by the weights */
+        private final double[] diagonal = new double[PatternEvaluator.PHASES * PatternEvaluator.SIZE];
+
+        /** Weight indices of the features of the current sample */
+        private final int[] indices = new int[PatternEvaluator.FEATURES];
+
+        /** Values of the features of the current sample */
+        private final int[] values = new int[PatternEvaluator.FEATURES];
+
+        /** Sum of the training losses */
+        private double trainingLoss;
+
+        /** Number of the training samples */
+        private long trainingCount;
+
+        /** Sum of the validation losses */
+        private double validationLoss;
+
+        /** Number of the validation samples */
+        private long validationCount;
+    }
+
+    /**
+     * Constructor of the tuner
+     * @param dataset dataset of the labelled positions
+     * @param initial evaluator with the initial weights
+     * @param threads number of the threads
+     * @param isLogistic flag of the logistic loss (otherwise least squares of the score)
+     * @param scale scale of the score in the logistic loss (in hundredths of disks)
+     * @param rate step of the weights (share of the Gauss-Newton step)
+     * @param holdout every holdout-th sample is used for the validation only (0 = no validation)
+     */
+    public EvaluationTuner(Dataset dataset, PatternEvaluator initial, int threads, boolean isLogistic, double scale,
+                           double rate, int holdout) {
+        this.dataset = dataset;
+        this.threads = Math.max(1, threads);
+        this.isLogistic = isLogistic;
+        this.scale = scale;
+        this.rate = rate;
+        this.holdout = holdout;
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            int[] phaseWeights = initial.weights(phase);
+            for (int i = 0; i < PatternEvaluator.SIZE; i++) {
+                weights[phase][i] = phaseWeights[i];
+            }
+        }
+        accumulators = new Accumulator[this.threads];
+        for (int i = 0; i < this.threads; i++) {
+            accumulators[i] = new Accumulator();
+        }
+    }
+
+    /**
+     * Set weight of the L2 regularization
+     * @param regularization weight of the regularization (0 = no regularization)
+     */
+    public void setRegularization(double regularization) {
+        this.regularization = Math.max(0, regularization);
+    }
+
+    /**
+     * Pass the range of the dataset accumulating the gradient
+     * @param accumulator accumulator of the thread
+     * @param from first sample
+     * @param to sample after the last one
+     */
+    private void pass(Accumulator accumulator, int from, int to) {
+        Arrays.fill(accumulator.gradient, 0);
+        Arrays.fill(accumulator.diagonal, 0);
+        accumulator.trainingLoss = 0;
+        accumulator.trainingCount = 0;
+        accumulator.validationLoss = 0;
+        accumulator.validationCount = 0;
+        int[] indices = accumulator.indices;
+        int[] values = accumulator.values;
+        for (int sample = from; sample < to; sample++) {
+            int phase = PatternEvaluator.features(dataset.player(sample), dataset.opponent(sample), indices, values);
+            double[] phaseWeights = weights[phase];
+            double score = 0;
+            for (int i = 0; i < indices.length; i++) {
+                score += phaseWeights[indices[i]] * values[i];
+            }
+            double prediction = score;
+            double target = dataset.score(sample);
+            double derivative = 1;
+            if (isLogistic) {
+                prediction = sigmoid(score);
+                target = sigmoid(target);
+                derivative = prediction * (1 - prediction) / scale;
+            }
+            double error = prediction - target;
+            if (holdout > 0 && sample % holdout == 0) {
+                accumulator.validationLoss += error * error;
+                accumulator.validationCount++;
+                continue;
+            }
+            accumulator.trainingLoss += error * error;
+            accumulator.trainingCount++;
+            int offset = phase * PatternEvaluator.SIZE;
+            for (int i = 0; i < indices.length; i++) {
+                accumulator.gradient[offset + indices[i]] += error * derivative * values[i];
+                accumulator.diagonal[offset + indices[i]] += derivative * derivative * values[i] * values[i];
+            }
+        }
+    }
+
+    /**
+     * Get the win probability of the score
+     * @param score score (in hundredths of disks)
+     * @return probability
+     */
+    private double sigmoid(double score) {
+        return 1 / (1 + Math.exp(-score / scale));
+    }
+
+    /**
+     * Make one epoch: parallel pass over the dataset, then the step of the weights
+     * @param executor executor of the passes
+     * @return loss of the weights before the step
+     */
+    public Loss epoch(ExecutorService executor) throws InterruptedException {
+        List<Future<?>> futures = new ArrayList<>();
+        int size = dataset.size();
+        for (int i = 0; i < threads; i++) {
+            Accumulator accumulator = accumulators[i];
+            int from = (int) ((long) size * i / threads);
+            int to = (int) ((long) size * (i + 1) / threads);
+            futures.add(executor.submit(() -> pass(accumulator, from, to)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        Accumulator total = accumulators[0];
+        for (int i = 1; i < threads; i++) {
+            Accumulator accumulator = accumulators[i];
+            for (int j = 0; j < total.gradient.length; j++) {
+                total.gradient[j] += accumulator.gradient[j];
+                total.diagonal[j] += accumulator.diagonal[j];
+            }
+            total.trainingLoss += accumulator.trainingLoss;
+            total.trainingCount += accumulator.trainingCount;
+            total.validationLoss += accumulator.validationLoss;
+            total.validationCount += accumulator.validationCount;
+        }
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            int offset = phase * PatternEvaluator.SIZE;
+            double penalty = regularization * (isLogistic ? 1 / (16 * scale * scale) : 1);
+            for (int i = 0; i < PatternEvaluator.SIZE; i++) {
+                double diagonal = total.diagonal[offset + i];
+                if (diagonal > 0) {
+                    weights[phase][i] -= rate * (total.gradient[offset + i] + penalty * weights[phase][i])
+                            / (diagonal + penalty);
+                }
+            }
+        }
+        return new Loss(loss(total.trainingLoss, total.trainingCount),
+                total.validationCount == 0 ? Double.NaN : loss(total.validationLoss, total.validationCount));
+    }
+
+    /**
+     * Get the reported loss
+     * @param sum sum of the squared errors
+     * @param count number of the samples
+     * @return root mean squared error (in disks for the least squares)
+     */
+    private double loss(double sum, long count) {
+        double rootMean = Math.sqrt(sum / Math.max(1, count));
+        return isLogistic ? rootMean : rootMean / Search.SCORE_SCALE;
+    }
+
+    /**
+     * Get the evaluator with the tuned weights
+     * @return pattern evaluator
+     */
+    public PatternEvaluator evaluator() {
+        int[][] result = new int[PatternEvaluator.PHASES][PatternEvaluator.SIZE];
+        for (int phase = 0; phase < PatternEvaluator.PHASES; phase++) {
+            for (int i = 0; i < PatternEvaluator.SIZE; i++) {
+                result[phase][i] = (int) Math.round(weights[phase][i]);
+            }
+        }
+        return new PatternEvaluator(result);
+    }
+
+    /**
+     * Main function
+     * @param args path to the dataset file, then options epochs=N, threads=N, loss=squares|logistic,
+     *             scale=N, rate=R, holdout=N, regularization=R, from=weights file, weights=output weights file
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: java EvaluationTuner <dataset> [epochs=20] [threads=N] "
+                    + "[loss=squares|logistic] [scale=400] [rate=0.02] [holdout=10] [regularization=10] [from=weights.bin] "
+                    + "[weights=weights.bin]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        Dataset dataset = Dataset.open(Path.of(args[0]));
+        Path output = Path.of(options.getOrDefault("weights", PatternEvaluator.DEFAULT_PATH.toString()));
+        Path from = Path.of(options.getOrDefault("from", output.toString()));
+        PatternEvaluator initial = Files.exists(from) ? PatternEvaluator.load(from) : new PatternEvaluator();
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        EvaluationTuner tuner = new EvaluationTuner(dataset, initial, threads,
+                options.getOrDefault("loss", "squares").equals("logistic"),
+                Double.parseDouble(options.getOrDefault("scale", "400")),
+                Double.parseDouble(options.getOrDefault("rate", "0.02")),
+                Integer.parseInt(options.getOrDefault("holdout", "10")));
+        tuner.setRegularization(Double.parseDouble(options.getOrDefault("regularization", "10")));
+        int epochs = Integer.parseInt(options.getOrDefault("epochs", "20"));
+        System.out.println(dataset.size() + " positions, " + PatternEvaluator.PHASES * PatternEvaluator.SIZE
+                + " weights, " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int epoch = 1; epoch <= epochs; epoch++) {
+                long start = System.nanoTime();
+                Loss loss = tuner.epoch(executor);
+                System.out.printf("epoch %d: training loss %.4f, validation loss %.4f, %.2f s%n",
+                        epoch, loss.training(), loss.validation(), (System.nanoTime() - start) / 1e9);
+                tuner.evaluator().save(output);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println("Weights are saved to " + output);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Static evaluation of the positions (used by the search and by the AI of the Field)
+ * Implementations must be thread-safe: the search threads share one evaluator.
+ */
+public interface Evaluator {
+    /**
+     * Get heuristic score of the position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return score for the player to move (in hundredths of disks, see Search.SCORE_SCALE)
+     */
+    int evaluate(long player, long opponent);
+}
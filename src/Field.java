@@ -1,21 +1,35 @@
 import java.util.ArrayList;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class of the game Field realising Reversi rules
  */
 public class Field implements Reversi, Game {
-    /** The game field */
-    private final Cell[] field = new Cell[BOARD_SIZE * BOARD_SIZE];
+    /** Location values of the cells (for closed cells) */
+    private static final double[] CLOSED_CELL_VALUES = new double[BitBoard.SQUARES];
 
-    /** Possible moves for current state of the board */
-    private final ArrayList<Move> possibleMoves = new ArrayList<>();
+    /** Location values of the cells (for destination cells) */
+    private static final double[] CELL_VALUES = new double[BitBoard.SQUARES];
+
+    /** Number of empty cells above the endgame threshold solved for win/loss/draw only */
+    private static final int WIN_LOSS_DRAW_EMPTIES = 2;
+
+    /** Search depth to predict the human reply before the pondering */
+    private static final int PREDICTION_DEPTH = 4;
+
+    /** Extra depth of the pondering after the predicted human reply */
+    private static final int PREDICTION_LEAD = 2;
 
-    /** The stack of moves for undo */
-    private final Stack<Move> updates = new Stack<>();
+    /** Least share of the search time of the MASTER difficulty after the pondering (1 / PONDER_HIT_SHARE) */
+    private static final int PONDER_HIT_SHARE = 10;
 
-    /** Possible directions to move */
-    private final Point[] DIRECTIONS = {
+    /** Directions of the scan listing the possible moves (in the order of the original cell scan) */
+    private static final Point[] DIRECTIONS = {
             new Point(0, -1),   // Up
             new Point(-1, -1),  // Up-Left
             new Point(1, -1),   // Up-Right
@@ -26,12 +40,48 @@ public class Field implements Reversi, Game {
             new Point(1, 0)     // Right
     };
 
+    static {
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            Cell cell = new Cell(BitBoard.toPoint(square), BOARD_SIZE);
+            CLOSED_CELL_VALUES[square] = cell.getClosedCellValue();
+            CELL_VALUES[square] = cell.getCellValue();
+        }
+    }
+
+    /** Black disks of the game field (bitboard) */
+    private long black;
+
+    /** White disks of the game field (bitboard) */
+    private long white;
+
+    /** Mask of the possible moves for current state of the board */
+    private long possibleMovesMask;
+
+    /** Possible moves for current state of the board */
+    private final ArrayList<Move> possibleMoves = new ArrayList<>();
+
+    /** Snapshots of the plies for undo, redo and jumps */
+    private final GameHistory history = new GameHistory();
+
     /**
      * immutable class of move
      * @param destination cell to move
-     * @param recolor list of cells to recolor
+     * @param recolor mask of cells to recolor
+     * @param closedValue sum of the closed values of the cells to recolor (added in the order of the scan)
      */
-    private record Move(Point destination, ArrayList<Cell> recolor) {}
+    private record Move(Point destination, long recolor, double closedValue) {}
+
+    /** Squares of the possible moves in the order of the scan (buffer of setPossibleMoves) */
+    private final int[] scanOrder = new int[BitBoard.SQUARES];
+
+    /** Sums of the closed values of the cells to recolor by squares (buffer of setPossibleMoves) */
+    private final double[] scanValues = new double[BitBoard.SQUARES];
+
+    /** Listeners of the game events (no listeners = silent game) */
+    private final ArrayList<GameListener> listeners = new ArrayList<>();
+
+    /** Flag if the end of the game was published to the listeners (reset by a new ply, not by undo or redo) */
+    private boolean isGameOverPublished = false;
 
     /** Gameplay mode */
     private GameMode mode = GameMode.PLAYER_VS_COMPUTER;
@@ -39,24 +89,94 @@ public class Field implements Reversi, Game {
     /** Gameplay difficulty */
     private DifficultyLevel level = DifficultyLevel.NORMAL;
 
+    /** Search engine (for EXPERT and MASTER difficulty) */
+    private final Search search = new Search();
+
+    /** Static evaluation of the positions (null = location values of the cells) */
+    private Evaluator evaluator;
+
+    /** Exact endgame solver (created on the first use) */
+    private EndgameSolver solver;
+
+    /** Number of empty cells to solve the endgame exactly from (0 = no solver) */
+    private int endgameThreshold = EndgameSolver.DEFAULT_THRESHOLD;
+
+    /** Opening book (null = no book) */
+    private OpeningBook book;
+
+    /** Monte Carlo search engine (for MCTS difficulty, created on the first use) */
+    private MonteCarloSearch monteCarloSearch;
+
+    /** Memory budget of the MCTS trees (in megabytes) */
+    private int treeSize = MonteCarloSearch.DEFAULT_TREE_SIZE;
+
+    /** Number of the AI search threads */
+    private int threads = 1;
+
+    /** Statistics of the AI moves (null = not collected) */
+    private EngineStatistics statistics;
+
+    /** Sample of the engine which chose the current AI move (null = no search) */
+    private EngineStatistics.Sample sample;
+
+    /** Flag if the AI searches on the human's time (PLAYER_VS_COMPUTER mode, EXPERT and MASTER difficulty) */
+    private boolean isPonderingEnabled = false;
+
+    /** Thread of the pondering (created on the first use) */
+    private ExecutorService ponderer;
+
+    /** Running pondering (null if the AI does not ponder) */
+    private Future<?> pondering;
+
+    /** Flag if the pondering has to stop */
+    private volatile boolean isPonderStopped;
+
+    /** Time of the pondering after every human reply (in nanoseconds, by the square of the reply) */
+    private final long[] ponderNanos = new long[BitBoard.SQUARES];
+
+    /** Time of the pondering after the human move (in nanoseconds, saved from the search time of MASTER) */
+    private long ponderedNanos;
+
+    /** Number of the best moves shown with the principal variations (0 = possible moves without analysis) */
+    private int analysisVariations = 0;
+
+    /** Analysis of the possible moves (created on the first use) */
+    private MoveAnalysis analysis;
+
+    /** Board to look ahead without changing the game field (for ADVANCED difficulty) */
+    private final SearchBoard board = new SearchBoard();
+
+    /** Search depth for the EXPERT difficulty */
+    private int searchDepth = EngineSettings.DEFAULT_DEPTH;
+
+    /** Search time per move (in milliseconds) for the MASTER difficulty */
+    private long searchTime = EngineSettings.DEFAULT_TIME;
+
+    /** Renderer of the game field to the console */
+    private BoardRenderer renderer = new BoardRenderer(null, false, 0, 0);
+
+    /** Flag if the last frame of the game field was skipped by the frame cap of the renderer */
+    private boolean isFrameSkipped = false;
+
+    /** Time manager of the AI moves (null = search depth and time of the difficulty) */
+    private TimeManager clock;
+
+    /** Time budget of the current AI move (null = no time control) */
+    private TimeManager.Budget budget;
+
     /** Current turn (true = black, false = white) */
     private boolean isBlackGo = true;
 
-    /** Max score for black disks (during game session) */
+    /** Max score for black disks (of the recorded games and during game session) */
     private int maxBlack = 0;
 
-    /** Max score for white disks (during game session) */
+    /** Max score for white disks (of the recorded games and during game session) */
     private int maxWhite = 0;
 
     /**
      * Constructor of the game field
      */
     public Field() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                field[i + BOARD_SIZE * j] = new Cell(new Point(i + 1, j + 1), BOARD_SIZE);
-            }
-        }
         setStartPosition();
     }
 
@@ -64,59 +184,104 @@ public class Field implements Reversi, Game {
      * Set start position of reversi game
      */
     private void setStartPosition() {
-        int x = BOARD_SIZE / 2;
-        int y = BOARD_SIZE / 2 + 1;
-        field[(y - 1) + (x - 1) * BOARD_SIZE].setColor((byte) 0);
-        field[(x - 1) + (x - 1) * BOARD_SIZE].setColor((byte) 1);
-        field[(x - 1) + (y - 1) * BOARD_SIZE].setColor((byte) 0);
-        field[(y - 1) + (y - 1) * BOARD_SIZE].setColor((byte) 1);
+        black = BitBoard.START_BLACK;
+        white = BitBoard.START_WHITE;
         isBlackGo = true;
         updatePossibleMoves();
+        history.reset(Position.START);
+    }
+
+    /**
+     * Set the position to continue the game from (the history starts from the position)
+     * @param position position of the game
+     */
+    void setPosition(Position position) {
+        stopPondering();
+        history.reset(position);
+        restore(0);
+        isGameOverPublished = false;
+    }
+
+    /**
+     * Get time manager of the AI moves
+     * @return time manager (null = no time control)
+     */
+    TimeManager getClock() {
+        return clock;
+    }
+
+    /**
+     * Restore the ply of the history (the possible moves are taken from the snapshot)
+     * @param ply ply of the history
+     */
+    private void restore(int ply) {
+        history.go(ply);
+        Position position = history.getPosition(ply);
+        black = position.black();
+        white = position.white();
+        isBlackGo = position.isBlackGo();
+        clearPossibleMoves();
+        setPossibleMoves(history.getPossibleMoves(ply));
+        publishScore();
     }
 
     /**
      * Update possible moves for current state of the board and save cells to repaint
      */
-    private void updatePossibleMoves() {
-        for (int i = 0; i < BOARD_SIZE; i++) {
+    void updatePossibleMoves() {
+        long player = isBlackGo ? black : white;
+        long opponent = isBlackGo ? white : black;
+        setPossibleMoves(BitBoard.legalMoves(player, opponent));
+    }
+
+    /**
+     * Set possible moves for current state of the board
+     * The moves are listed in the order they are reached by the scan of the player's disks (by columns, then
+     * by the directions) and the closed values of their cells are summed in the same order, as the original
+     * cell scan did: evaluateMoves keeps the first of the equally valued moves, so the AI chooses the same moves.
+     * @param mask mask of the possible moves
+     */
+    private void setPossibleMoves(long mask) {
+        long player = isBlackGo ? black : white;
+        long opponent = isBlackGo ? white : black;
+        possibleMovesMask = mask;
+        int count = 0;
+        long found = 0;
+        for (int i = 0; i < BOARD_SIZE && mask != 0; i++) {
             for (int j = 0; j < BOARD_SIZE; j++) {
-                if (field[i + BOARD_SIZE * j].getColor() == (isBlackGo ? 0 : 1)) {
-                    for (Point dir : DIRECTIONS) {
-                        Point destination = null;
-                        int iShift = i + dir.x();
-                        int jShift = j + dir.y();
-                        boolean hasChangedDirection = false;
-                        ArrayList<Cell> cells = new ArrayList<>();
-                        ArrayList<Cell> addCells = new ArrayList<>();
-                        while ((iShift >= 0 && iShift < BOARD_SIZE && jShift >= 0 && jShift < BOARD_SIZE)
-                                && field[iShift + BOARD_SIZE * jShift].getColor() == (isBlackGo ? 1 : 0)){
-                            hasChangedDirection = true;
-                            addCells.add(field[iShift + BOARD_SIZE * jShift]);
-                            iShift += dir.x();
-                            jShift += dir.y();
-                        }
-                        if (hasChangedDirection
-                                && iShift >= 0 && iShift < BOARD_SIZE && jShift >= 0 && jShift < BOARD_SIZE) {
-                            if (field[iShift + BOARD_SIZE * jShift].getColor() == 2) {
-                                field[iShift + BOARD_SIZE * jShift].setColor((byte) (isBlackGo ? 3 : 4));
-                                destination = new Point(iShift + 1, jShift + 1);
-                                cells.addAll(addCells);
-                            } else if (field[iShift + BOARD_SIZE * jShift].getColor() == (isBlackGo ? 3 : 4)) {
-                                for (Move move : possibleMoves) {
-                                    if (move.destination.x() == iShift + 1 && move.destination.y() == jShift + 1) {
-                                        move.recolor.addAll(addCells);
-                                    }
-                                }
-                            }
-                        }
-                        if (destination != null) {
-                            Move move = new Move(destination, cells);
-                            possibleMoves.add(move);
-                        }
+                if ((player & (1L << (i + BOARD_SIZE * j))) == 0) {
+                    continue;
+                }
+                for (Point dir : DIRECTIONS) {
+                    int x = i + dir.x();
+                    int y = j + dir.y();
+                    while (x >= 0 && x < BOARD_SIZE && y >= 0 && y < BOARD_SIZE
+                            && (opponent & (1L << (x + BOARD_SIZE * y))) != 0) {
+                        x += dir.x();
+                        y += dir.y();
+                    }
+                    int square = x + BOARD_SIZE * y;
+                    if (x < 0 || x >= BOARD_SIZE || y < 0 || y >= BOARD_SIZE || (mask & (1L << square)) == 0
+                            || x == i + dir.x() && y == j + dir.y()) {
+                        continue;
+                    }
+                    if ((found & (1L << square)) == 0) {
+                        found |= 1L << square;
+                        scanOrder[count++] = square;
+                        scanValues[square] = 0;
+                    }
+                    for (int cellX = i + dir.x(), cellY = j + dir.y(); cellX != x || cellY != y;
+                         cellX += dir.x(), cellY += dir.y()) {
+                        scanValues[square] += CLOSED_CELL_VALUES[cellX + BOARD_SIZE * cellY];
                     }
                 }
             }
         }
+        for (int i = 0; i < count; i++) {
+            int square = scanOrder[i];
+            possibleMoves.add(new Move(BitBoard.toPoint(square), BitBoard.flips(player, opponent, square),
+                    scanValues[square]));
+        }
     }
 
     /**
@@ -124,21 +289,15 @@ public class Field implements Reversi, Game {
      * @param point cell's coordinates
      */
     private boolean isPossibleMove(Point point) {
-        return field[point.x() - 1 + BOARD_SIZE * (point.y() - 1)].getColor() == (isBlackGo ? 3 : 4);
+        return (possibleMovesMask & (1L << BitBoard.toSquare(point))) != 0;
     }
 
     /**
-     * Clear possible moves and repaint possible cells to empty
+     * Clear possible moves
      */
-    private void clearPossibleMoves() {
+    void clearPossibleMoves() {
         possibleMoves.clear();
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (field[i + BOARD_SIZE * j].getColor() == 3 || field[i + BOARD_SIZE * j].getColor() == 4) {
-                    field[i + BOARD_SIZE * j].setColor((byte) 2);
-                }
-            }
-        }
+        possibleMovesMask = 0;
     }
 
     /**
@@ -146,30 +305,41 @@ public class Field implements Reversi, Game {
      * @param move current move
      */
     private double evaluation(Move move) {
+        return move.closedValue + CELL_VALUES[BitBoard.toSquare(move.destination)];
+    }
+
+    /**
+     * Get the result value of moving to the square
+     * @param square square of the move
+     * @param recolor mask of cells to recolor
+     */
+    private static double evaluation(int square, long recolor) {
         double result = 0;
-        for (Cell cell : move.recolor) {
-            result += cell.getClosedCellValue();
+        for (long cells = recolor; cells != 0; cells &= cells - 1) {
+            result += CLOSED_CELL_VALUES[Long.numberOfTrailingZeros(cells)];
         }
-        result += field[(move.destination.x() - 1) + BOARD_SIZE * (move.destination.y() - 1)].getCellValue();
+        result += CELL_VALUES[square];
         return result;
     }
 
     /**
      * Get the result value of moving (with evaluation of the rival's move)
+     * The move is made on the look-ahead board, so the game field is not changed.
      * @param move current move
      */
     private double smartEvaluation(Move move) {
         double result = evaluation(move);
         if (isPossibleMove(move.destination)) {
-            move(move.destination);
+            board.make(BitBoard.toSquare(move.destination));
             double maxRivalResult = 0;
-            for (Move rivalMove: possibleMoves) {
-                double rivalResult = evaluation(rivalMove);
+            for (long rivalMoves = board.legalMoves(); rivalMoves != 0; rivalMoves &= rivalMoves - 1) {
+                int square = Long.numberOfTrailingZeros(rivalMoves);
+                double rivalResult = evaluation(square, BitBoard.flips(board.player(), board.opponent(), square));
                 if (rivalResult > maxRivalResult) {
                     maxRivalResult = rivalResult;
                 }
             }
-            cancelMove();
+            board.unmake();
             result -= maxRivalResult;
         }
         return result;
@@ -185,66 +355,181 @@ public class Field implements Reversi, Game {
         this.mode = mode;
     }
 
+    @Override
+    public DifficultyLevel getDifficultyLevel() {
+        return level;
+    }
+
     @Override
     public void setDifficultyLevel(DifficultyLevel level) {
         this.level = level;
     }
 
+    @Override
+    public void setSearchDepth(int depth) {
+        searchDepth = depth;
+    }
+
+    @Override
+    public void setSearchTime(long millis) {
+        searchTime = millis;
+    }
+
+    @Override
+    public void setHashSize(int megabytes) {
+        search.setHashSize(megabytes);
+    }
+
+    @Override
+    public void setTreeSize(int megabytes) {
+        treeSize = megabytes;
+        if (monteCarloSearch != null) {
+            monteCarloSearch.setTreeSize(megabytes);
+        }
+    }
+
+    @Override
+    public void setThreads(int threads) {
+        this.threads = threads;
+        search.setThreads(threads);
+        if (monteCarloSearch != null) {
+            monteCarloSearch.setThreads(threads);
+        }
+    }
+
+    @Override
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        search.setEvaluator(evaluator);
+        if (analysis != null) {
+            analysis.setEvaluator(evaluator);
+        }
+    }
+
+    @Override
+    public void setEndgameThreshold(int empties) {
+        endgameThreshold = empties;
+    }
+
+    @Override
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    @Override
+    public void setPondering(boolean isPondering) {
+        if (!isPondering) {
+            stopPondering();
+        }
+        isPonderingEnabled = isPondering;
+    }
+
+    @Override
+    public void setTimeControl(TimeControl control) {
+        clock = control == null ? null : new TimeManager(control);
+    }
+
+    @Override
+    public void setAnalysis(int variations) {
+        analysisVariations = Math.max(0, variations);
+    }
+
+    @Override
+    public void setStatistics(EngineStatistics statistics) {
+        this.statistics = statistics;
+    }
+
     @Override
     public void resetField() {
-        updates.clear();
-        possibleMoves.clear();
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                field[i + BOARD_SIZE * j].setColor((byte) 2);
-            }
+        stopPondering();
+        clearPossibleMoves();
+        search.getTable().clear();
+        if (clock != null) {
+            clock.reset();
         }
         setStartPosition();
+        isGameOverPublished = false;
+        publishScore();
+    }
+
+    @Override
+    public void setRenderer(BoardRenderer renderer) {
+        this.renderer.close();
+        this.renderer = renderer == null ? new BoardRenderer(null, false, 0, 0) : renderer;
     }
 
     @Override
     public void printField() {
-        for (int i = 0; i <= BOARD_SIZE; i++) {
-            System.out.print((i < BOARD_SIZE) ? (i + 1) : " ");
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (i == BOARD_SIZE) {
-                    System.out.print("  " + (j + 1) + " ");
-                    continue;
-                }
-                System.out.print("|" + (field[j + BOARD_SIZE * i]));
-            }
-            if (i < BOARD_SIZE) {
-                System.out.println();
-                System.out.print(" ");
-                for (int j = 0; j < BOARD_SIZE * 4; j++) {
-                    System.out.print("–");
-                }
-            }
-            System.out.println();
-        }
+        render(true);
+    }
+
+    @Override
+    public void printFrame() {
+        render(mode == GameMode.PLAYER_VS_PLAYER || mode == GameMode.PLAYER_VS_COMPUTER && isBlackGo);
+    }
+
+    /**
+     * Draw the frame of the game field with the renderer (the possible moves are not printed if it is skipped)
+     * @param isForced flag if the frame can not be skipped by the frame cap
+     */
+    private void render(boolean isForced) {
+        int lastMove = history.getPly() > 0 ? history.getMove(history.getPly()) : GameHistory.PASS;
+        isFrameSkipped = !renderer.render(black, white, isBlackGo, possibleMovesMask, lastMove,
+                clock != null && clock.getControl().isClock() ? clock.toString() : null, isForced);
     }
 
     @Override
     public void printPossibleMoves() {
+        if (isFrameSkipped) {
+            return;
+        }
+        if (analysisVariations > 0 && !possibleMoves.isEmpty() && (mode == GameMode.PLAYER_VS_PLAYER
+                || mode == GameMode.PLAYER_VS_COMPUTER && isBlackGo)) {
+            printAnalysis();
+            return;
+        }
         System.out.println("Possible moves:");
         for (Move move: possibleMoves) {
             System.out.println(move.destination.x() + " " + move.destination.y());
         }
     }
 
+    /**
+     * Print the possible moves ranked by the analysis (the ranking is printed every time a depth is finished)
+     */
+    private void printAnalysis() {
+        if (analysis == null) {
+            analysis = new MoveAnalysis(Runtime.getRuntime().availableProcessors(), Search.DEFAULT_HASH_SIZE);
+            analysis.setEvaluator(evaluator);
+        }
+        int[] shownDepth = {0};
+        List<MoveAnalysis.MoveScore> ranking = analysis.analyze(getPosition(), Search.MAX_DEPTH, searchTime,
+                analysisVariations, update -> {
+                    int depth = Search.MAX_DEPTH;
+                    for (MoveAnalysis.MoveScore move : update) {
+                        depth = Math.min(depth, move.depth());
+                    }
+                    if (depth > shownDepth[0]) {
+                        shownDepth[0] = depth;
+                        System.out.println("Depth " + depth + ": " + update.get(0));
+                    }
+                });
+        System.out.println("Possible moves (best first):");
+        for (MoveAnalysis.MoveScore move : ranking) {
+            System.out.println(move);
+        }
+    }
+
+    @Override
+    public void setBestScores(int black, int white) {
+        maxBlack = black;
+        maxWhite = white;
+    }
+
     @Override
     public void printResults() {
-        int black = 0;
-        int white = 0;
-        for (int i = 0; i < BOARD_SIZE; i++) {
-            for (int j = 0; j < BOARD_SIZE; j++) {
-                if (field[i + BOARD_SIZE * j].getColor() == 0) {
-                    black++;
-                } else if (field[i + BOARD_SIZE * j].getColor() == 1) {
-                    white++;
-                }
-            }
-        }
+        int black = Long.bitCount(this.black);
+        int white = Long.bitCount(this.white);
         System.out.println("Black score: " + black);
         System.out.println("White score: " + white);
         if (black > maxBlack) {
@@ -257,14 +542,43 @@ public class Field implements Reversi, Game {
         System.out.println("White max score: " + maxWhite);
     }
 
-    @Override
-    public void move() {
-        double maxResult = (level == DifficultyLevel.NORMAL) ? 0 : -1e9;
+    /**
+     * Get the result value of moving by the evaluator
+     * (for ADVANCED difficulty - after the best reply of the rival)
+     * @param move possible move
+     * @return score of the position after the move for the moving player
+     */
+    private double evaluatorEvaluation(Move move) {
+        board.make(BitBoard.toSquare(move.destination));
+        int result;
+        int count = board.generateMoves();
+        if (level == DifficultyLevel.NORMAL || count == 0) {
+            result = -evaluator.evaluate(board.player(), board.opponent());
+        } else {
+            result = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                board.make(board.move(i));
+                result = Math.min(result, evaluator.evaluate(board.player(), board.opponent()));
+                board.unmake();
+            }
+        }
+        board.unmake();
+        return result;
+    }
+
+    /**
+     * Choose the move with max evaluation (for NORMAL and ADVANCED difficulty)
+     * @return point to move (null if there are no possible moves)
+     */
+    Point evaluateMoves() {
+        double maxResult = (level == DifficultyLevel.NORMAL && evaluator == null) ? 0 : -1e9;
         Point maxPoint = null;
-        ArrayList<Move> possibleMovesCopy = new ArrayList<>(possibleMoves);
-        for (Move move: possibleMovesCopy) {
+        board.set(black, white, isBlackGo);
+        for (Move move: possibleMoves) {
             double result;
-            if (level == DifficultyLevel.NORMAL) {
+            if (evaluator != null) {
+                result = evaluatorEvaluation(move);
+            } else if (level == DifficultyLevel.NORMAL) {
                 result = evaluation(move);
             } else {
                 result = smartEvaluation(move);
@@ -274,64 +588,389 @@ public class Field implements Reversi, Game {
                 maxPoint = move.destination;
             }
         }
+        return maxPoint;
+    }
+
+    /**
+     * Choose the move by alpha-beta search (for EXPERT and MASTER difficulty)
+     * @return point to move (null if there are no possible moves)
+     */
+    private Point searchMove() {
+        long pondered = ponderedNanos / 1_000_000;
+        if (level == DifficultyLevel.EXPERT) {
+            search.setMaxDepth(searchDepth);
+            search.setTimeMillis(budget == null ? 0 : budget.hardMillis());
+            search.setSoftTimeMillis(0);
+        } else if (budget == null) {
+            search.setMaxDepth(Search.MAX_DEPTH);
+            search.setTimeMillis(Math.max(searchTime / PONDER_HIT_SHARE, searchTime - pondered));
+            search.setSoftTimeMillis(0);
+        } else {
+            search.setMaxDepth(Search.MAX_DEPTH);
+            search.setTimeMillis(budget.hardMillis());
+            search.setSoftTimeMillis(Math.max(budget.softMillis() / PONDER_HIT_SHARE, budget.softMillis() - pondered));
+        }
+        int square = search.findMove(black, white, isBlackGo);
+        if (statistics != null) {
+            sample = new EngineStatistics.Sample(0, search.getNodes(), search.getCompletedDepth(),
+                    search.getMoveGenerations(), search.getEvaluations(), search.getCacheProbes(),
+                    search.getCacheHits());
+        }
+        return square < 0 ? null : BitBoard.toPoint(square);
+    }
+
+    /**
+     * Choose the move by Monte Carlo tree search (for MCTS difficulty)
+     * @return point to move (null if there are no possible moves)
+     */
+    private Point monteCarloMove() {
+        if (monteCarloSearch == null) {
+            monteCarloSearch = new MonteCarloSearch();
+            monteCarloSearch.setTreeSize(treeSize);
+            monteCarloSearch.setThreads(threads);
+        }
+        monteCarloSearch.setTimeMillis(budget == null ? searchTime : budget.softMillis());
+        int square = monteCarloSearch.findMove(black, white, isBlackGo);
+        if (monteCarloSearch.getPlayouts() > 0) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).playoutsMade(monteCarloSearch.getPlayouts(), monteCarloSearch.getSearchNanos());
+            }
+        }
+        if (statistics != null) {
+            sample = new EngineStatistics.Sample(0, monteCarloSearch.getPlayouts(), 0, 0, 0, 0, 0);
+        }
+        return square < 0 ? null : BitBoard.toPoint(square);
+    }
+
+    /**
+     * Solve the endgame: exactly within the threshold, win/loss/draw only a few empty cells before it
+     * The solve is aborted at the hard deadline of the time budget; the level search gets the rest of the budget.
+     * @return point to move (null if the endgame is not reached, the position is lost in the win/loss/draw mode
+     *         or the solve is aborted)
+     */
+    private Point endgameMove() {
+        int empties = Long.bitCount(~(black | white));
+        if (endgameThreshold <= 0 || empties > endgameThreshold + WIN_LOSS_DRAW_EMPTIES || possibleMoves.isEmpty()) {
+            return null;
+        }
+        if (solver == null) {
+            solver = new EndgameSolver();
+        }
+        boolean isWinLossDraw = empties > endgameThreshold;
+        solver.setTimeMillis(budget == null ? 0 : budget.hardMillis());
+        int square = isBlackGo ? solver.solve(black, white, isWinLossDraw) : solver.solve(white, black, isWinLossDraw);
+        if (!solver.isAborted()) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).endgameSolved(solver.getScore(), isWinLossDraw, solver.getNodes(),
+                        solver.getSolveNanos());
+            }
+            if (statistics != null) {
+                sample = new EngineStatistics.Sample(0, solver.getNodes(), empties, 0, 0, 0, 0);
+            }
+            if (!isWinLossDraw || solver.getScore() >= 0) {
+                return BitBoard.toPoint(square);
+            }
+        }
+        if (budget != null) {
+            long spent = solver.getSolveNanos() / 1_000_000;
+            budget = new TimeManager.Budget(Math.max(1, budget.softMillis() - spent),
+                    Math.max(1, budget.hardMillis() - spent));
+        }
+        return null;
+    }
+
+    /**
+     * Record the AI move to the statistics (book and one-ply moves are recorded with the time only)
+     * @param nanos time of the move (in nanoseconds)
+     */
+    private void recordStatistics(long nanos) {
+        if (sample == null) {
+            statistics.record(new EngineStatistics.Sample(nanos, 0, 0, 0, 0, 0, 0));
+        } else {
+            statistics.record(new EngineStatistics.Sample(nanos, sample.nodes(), sample.depth(),
+                    sample.moveGenerations(), sample.evaluations(), sample.cacheProbes(), sample.cacheHits()));
+        }
+    }
+
+    /**
+     * Find the move of the opening book for current state of the board
+     * @return coordinates of the move (null if the book does not know the position)
+     */
+    private Point bookMove() {
+        if (book == null || possibleMoves.isEmpty()) {
+            return null;
+        }
+        OpeningBook.Entry entry = isBlackGo ? book.lookup(black, white) : book.lookup(white, black);
+        return entry == null ? null : BitBoard.toPoint(entry.square());
+    }
+
+    @Override
+    public void move() {
+        stopPondering();
+        long start = statistics == null && clock == null ? 0 : System.nanoTime();
+        sample = null;
+        budget = clock == null ? null : clock.budget(isBlackGo, Long.bitCount(~(black | white)));
+        Point maxPoint = bookMove();
+        if (maxPoint == null) {
+            maxPoint = endgameMove();
+        }
+        if (maxPoint == null) {
+            maxPoint = switch (level) {
+                case NORMAL, ADVANCED -> evaluateMoves();
+                case EXPERT, MASTER -> searchMove();
+                case MCTS -> monteCarloMove();
+            };
+        }
+        ponderedNanos = 0;
+        if (maxPoint != null && (statistics != null || clock != null)) {
+            long nanos = System.nanoTime() - start;
+            if (statistics != null) {
+                recordStatistics(nanos);
+            }
+            if (clock != null) {
+                clock.spend(isBlackGo, nanos);
+            }
+        }
         if (maxPoint != null) {
-            System.out.println("AI moved: " + maxPoint.x() + " " + maxPoint.y());
-            move(maxPoint);
+            move(maxPoint, true);
         } else {
-            System.out.println("No possible moves");
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).passed(isBlackGo);
+            }
             isBlackGo = !isBlackGo;
             clearPossibleMoves();
             updatePossibleMoves();
+            history.add(GameHistory.PASS, black, white, isBlackGo);
+            isGameOverPublished = false;
         }
     }
 
     @Override
     public void move(Point point) {
+        boolean isPondered = pondering != null;
+        stopPondering();
+        ponderedNanos = isPondered && isPossibleMove(point) ? ponderNanos[BitBoard.toSquare(point)] : 0;
+        move(point, false);
+    }
+
+    @Override
+    public void ponder() {
+        int empties = Long.bitCount(~(black | white));
+        if (!isPonderingEnabled || pondering != null || mode != GameMode.PLAYER_VS_COMPUTER
+                || (level != DifficultyLevel.EXPERT && level != DifficultyLevel.MASTER) || possibleMoves.isEmpty()
+                || endgameThreshold > 0 && empties - 1 <= endgameThreshold + WIN_LOSS_DRAW_EMPTIES) {
+            return;
+        }
+        if (ponderer == null) {
+            ponderer = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "ponder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Arrays.fill(ponderNanos, 0);
+        isPonderStopped = false;
+        search.resume();
+        long player = isBlackGo ? black : white;
+        long opponent = isBlackGo ? white : black;
+        boolean isHumanBlack = isBlackGo;
+        pondering = ponderer.submit(() -> ponderReplies(player, opponent, isHumanBlack));
+    }
+
+    @Override
+    public void stopPondering() {
+        if (pondering == null) {
+            return;
+        }
+        isPonderStopped = true;
+        search.stop();
+        try {
+            pondering.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pondering = null;
+            search.resume();
+        }
+    }
+
+    /**
+     * Search the positions after the human replies into the search cache (on the pondering thread)
+     * The predicted reply goes first and deeper, then the rest replies, one depth more every round.
+     * @param human disks of the human
+     * @param computer disks of the AI
+     * @param isHumanBlack flag if the human plays black
+     */
+    private void ponderReplies(long human, long computer, boolean isHumanBlack) {
+        search.setTimeMillis(0);
+        search.setSoftTimeMillis(0);
+        search.setMaxDepth(PREDICTION_DEPTH);
+        int predicted = search.findMove(isHumanBlack ? human : computer, isHumanBlack ? computer : human, isHumanBlack);
+        long replies = BitBoard.legalMoves(human, computer);
+        int[] order = new int[Long.bitCount(replies)];
+        order[0] = predicted;
+        for (int i = 1; replies != 0; replies &= replies - 1) {
+            int square = Long.numberOfTrailingZeros(replies);
+            if (square != predicted) {
+                order[i++] = square;
+            }
+        }
+        int maxDepth = level == DifficultyLevel.EXPERT ? searchDepth : Search.MAX_DEPTH;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            for (int square : order) {
+                if (isPonderStopped) {
+                    return;
+                }
+                long start = System.nanoTime();
+                long changed = (1L << square) | BitBoard.flips(human, computer, square);
+                long nextHuman = human | changed;
+                long nextComputer = computer & ~changed;
+                search.setMaxDepth(square == predicted ? depth + PREDICTION_LEAD : depth);
+                search.findMove(isHumanBlack ? nextHuman : nextComputer, isHumanBlack ? nextComputer : nextHuman,
+                        !isHumanBlack);
+                ponderNanos[square] += System.nanoTime() - start;
+            }
+        }
+    }
+
+    /**
+     * Move to point and notify the listeners
+     * @param point coordinates of the move
+     * @param isComputer flag if AI moves
+     */
+    private void move(Point point, boolean isComputer) {
         if (isPossibleMove(point)) {
-            field[(point.x() - 1) + BOARD_SIZE * (point.y() - 1)].setColor((byte) (isBlackGo ? 0 : 1));
             for (Move move : possibleMoves) {
                 if (move.destination.x() == point.x() && move.destination.y() == point.y()) {
-                    for (Cell cell : move.recolor) {
-                        //System.out.println("repainted cell: " + cell.getPoint().x() + " " + cell.getPoint().y());
-                        cell.setColor((byte) (isBlackGo ? 0 : 1));
+                    long changed = (1L << BitBoard.toSquare(point)) | move.recolor;
+                    if (isBlackGo) {
+                        black |= changed;
+                        white &= ~changed;
+                    } else {
+                        white |= changed;
+                        black &= ~changed;
+                    }
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).moveMade(point, isBlackGo, isComputer);
                     }
-                    System.out.println("moved: (" + move.destination.x() + " " + move.destination.y() + ") ");
-                    updates.push(move);
                     break;
                 }
             }
             isBlackGo = !isBlackGo;
             clearPossibleMoves();
             updatePossibleMoves();
+            history.add(BitBoard.toSquare(point), black, white, isBlackGo);
+            isGameOverPublished = false;
+            publishScore();
         } else {
-            System.out.println("Impossible move!");
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).moveRejected(point);
+            }
         }
     }
 
     @Override
     public void cancelMove() {
-        if (updates.size() > 0) {
-            for (int i = 0; i < ((mode == GameMode.PLAYER_VS_COMPUTER) ? 2 : 1); i++) {
-                Move move = updates.pop();
-                System.out.println("canceled move: (" + move.destination.x() + " " + move.destination.y() + ") ");
-                field[(move.destination.x() - 1) + BOARD_SIZE * (move.destination.y() - 1)].setColor((byte) 2);
-                for (Cell cell : move.recolor) {
-                    cell.setColor((byte) (isBlackGo ? 0 : 1));
+        stopPondering();
+        int ply = history.getPly() - 1;
+        while (ply >= 0 && !isStopPly(ply)) {
+            ply--;
+        }
+        if (ply >= 0) {
+            for (int i = history.getPly(); i > ply; i--) {
+                if (history.getMove(i) != GameHistory.PASS) {
+                    for (int j = 0; j < listeners.size(); j++) {
+                        listeners.get(j).moveUndone(BitBoard.toPoint(history.getMove(i)));
+                    }
                 }
-                isBlackGo = !isBlackGo;
             }
-            clearPossibleMoves();
-            updatePossibleMoves();
+            restore(ply);
         } else {
-            System.out.println("No moves to cancel!");
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).undoRejected();
+            }
         }
     }
 
+    @Override
+    public void redoMove() {
+        stopPondering();
+        if (history.getPly() == history.getLastPly()) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).redoRejected();
+            }
+            return;
+        }
+        int ply = history.getPly() + 1;
+        while (ply < history.getLastPly() && !isStopPly(ply)) {
+            ply++;
+        }
+        for (int i = history.getPly() + 1; i <= ply; i++) {
+            if (history.getMove(i) != GameHistory.PASS) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).moveMade(BitBoard.toPoint(history.getMove(i)), history.isBlackGo(i - 1), false);
+                }
+            }
+        }
+        restore(ply);
+    }
+
+    @Override
+    public void goToMove(int ply) {
+        stopPondering();
+        restore(ply);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).historyRestored(ply, history.getLastPly());
+        }
+    }
+
+    @Override
+    public GameHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Check if undo and redo stop at the ply: the side to move has moves and (against the computer)
+     * it is the same side as now, so the player gets the turn back
+     * @param ply ply of the history
+     * @return true if the ply is the stop
+     */
+    private boolean isStopPly(int ply) {
+        return history.getPossibleMoves(ply) != 0
+                && (mode != GameMode.PLAYER_VS_COMPUTER || history.isBlackGo(ply) == isBlackGo);
+    }
+
     @Override
     public boolean getTurn() {
         return isBlackGo;
     }
 
+    @Override
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify the listeners about the current number of disks
+     */
+    private void publishScore() {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).scoreChanged(Long.bitCount(black), Long.bitCount(white));
+        }
+    }
+
+    @Override
+    public Position getPosition() {
+        return new Position(black, white, isBlackGo);
+    }
+
     @Override
     public boolean hasGameEnded() {
         if (possibleMoves.size() > 0) {
@@ -346,6 +985,12 @@ public class Field implements Reversi, Game {
                 updatePossibleMoves();
                 return false;
             } else {
+                if (!isGameOverPublished) {
+                    isGameOverPublished = true;
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).gameOver(Long.bitCount(black), Long.bitCount(white));
+                    }
+                }
                 return true;
             }
         }
@@ -15,7 +15,13 @@ public interface Game {
     /** Gameplay difficulty (default = NORMAL) */
     enum DifficultyLevel {
         NORMAL,
-        ADVANCED
+        ADVANCED,
+        /** Alpha-beta search to the fixed depth */
+        EXPERT,
+        /** Alpha-beta search with iterative deepening limited by time */
+        MASTER,
+        /** Monte Carlo tree search with random playouts limited by time */
+        MCTS
     }
 
     /** Get gameplay mode */
@@ -24,15 +30,69 @@ public interface Game {
     /** Set gameplay mode */
     void setGameMode(GameMode mode);
 
+    /** Get gameplay difficulty */
+    DifficultyLevel getDifficultyLevel();
+
     /** Set gameplay difficulty */
     void setDifficultyLevel(DifficultyLevel level);
 
+    /** Set search depth (in plies) for the EXPERT difficulty */
+    void setSearchDepth(int depth);
+
+    /** Set search time (in milliseconds) per move for the MASTER and MCTS difficulty */
+    void setSearchTime(long millis);
+
+    /** Set memory budget (in megabytes) of the search cache */
+    void setHashSize(int megabytes);
+
+    /** Set memory budget (in megabytes) of the MCTS trees */
+    void setTreeSize(int megabytes);
+
+    /** Set number of the AI search threads */
+    void setThreads(int threads);
+
+    /** Set static evaluation of the AI (null = location values of the cells) */
+    void setEvaluator(Evaluator evaluator);
+
+    /** Set number of empty cells to solve the endgame exactly from (0 = no solver) */
+    void setEndgameThreshold(int empties);
+
+    /** Set opening book of the AI (null = no book) */
+    void setOpeningBook(OpeningBook book);
+
+    /** Set flag if the AI searches on the human's time (PLAYER_VS_COMPUTER mode, EXPERT and MASTER difficulty) */
+    void setPondering(boolean isPondering);
+
+    /** Start searching on the human's time (if the pondering is on) */
+    void ponder();
+
+    /** Stop searching on the human's time (wait for the pondering thread) */
+    void stopPondering();
+
+    /** Set time control of the AI moves (null = search depth and time of the difficulty) */
+    void setTimeControl(TimeControl control);
+
+    /** Set number of the best moves shown with the principal variations by the move analysis (0 = no analysis) */
+    void setAnalysis(int variations);
+
+    /** Set statistics to record the AI moves to (null = no statistics) */
+    void setStatistics(EngineStatistics statistics);
+
     /** Reset the game field (to start new game) */
     void resetField();
 
     /** Print current state of the game field */
     void printField();
 
+    /** Print the frame of the game being played (the frame cap of the renderer may skip it while the AI moves) */
+    void printFrame();
+
+    /** Set renderer of the game field (null = whole board every frame) */
+    void setRenderer(BoardRenderer renderer);
+
+    /** Set best scores of the earlier games (shown with the results) */
+    void setBestScores(int black, int white);
+
     /** Print current results of the game party */
     void printResults();
 }
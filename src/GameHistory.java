@@ -0,0 +1,165 @@
+import java.util.Arrays;
+
+/**
+ * History of the game: compact snapshot of every ply (disks, side to move, possible moves and the move to the ply)
+ * Snapshots are kept in parallel arrays (26 bytes per ply, under 2 KB for the whole game), so undo, redo
+ * and the jump to any ply restore the board in O(1). A new move after undo drops the undone plies.
+ */
+public class GameHistory {
+    /** Move to the ply of the pass (and to the first ply) */
+    public static final int PASS = -1;
+
+    /** Initial number of the plies (all moves of the game without passes and the start position) */
+    private static final int CAPACITY = BitBoard.SQUARES - 3;
+
+    /** Black disks by the ply */
+    private long[] black = new long[CAPACITY];
+
+    /** White disks by the ply */
+    private long[] white = new long[CAPACITY];
+
+    /** Possible moves of the side to move by the ply */
+    private long[] possibleMoves = new long[CAPACITY];
+
+    /** Square of the move to the ply (PASS for the pass and the first ply) */
+    private byte[] moves = new byte[CAPACITY];
+
+    /** Side to move by the ply (true = black) */
+    private boolean[] isBlackGo = new boolean[CAPACITY];
+
+    /** Number of the plies (including the undone ones) */
+    private int size;
+
+    /** Current ply */
+    private int ply;
+
+    /**
+     * Constructor of the history from the start position
+     */
+    public GameHistory() {
+        reset(Position.START);
+    }
+
+    /**
+     * Start the history from the position
+     * @param position first position
+     */
+    void reset(Position position) {
+        size = 0;
+        ply = -1;
+        add(PASS, position.black(), position.white(), position.isBlackGo());
+    }
+
+    /**
+     * Add the ply after the current one (the undone plies are dropped)
+     * @param square square of the move to the ply (PASS for the pass)
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     */
+    void add(int square, long black, long white, boolean isBlackGo) {
+        ply++;
+        if (ply == this.black.length) {
+            int capacity = 2 * ply;
+            this.black = Arrays.copyOf(this.black, capacity);
+            this.white = Arrays.copyOf(this.white, capacity);
+            possibleMoves = Arrays.copyOf(possibleMoves, capacity);
+            moves = Arrays.copyOf(moves, capacity);
+            this.isBlackGo = Arrays.copyOf(this.isBlackGo, capacity);
+        }
+        this.black[ply] = black;
+        this.white[ply] = white;
+        possibleMoves[ply] = isBlackGo ? BitBoard.legalMoves(black, white) : BitBoard.legalMoves(white, black);
+        moves[ply] = (byte) square;
+        this.isBlackGo[ply] = isBlackGo;
+        size = ply + 1;
+    }
+
+    /**
+     * Go to the ply (the plies after it are kept for redo)
+     * @param ply ply (0..getLastPly())
+     * @throws IllegalArgumentException if there is no such ply
+     */
+    void go(int ply) {
+        if (ply < 0 || ply >= size) {
+            throw new IllegalArgumentException("No ply " + ply + " in the history of " + size + " plies");
+        }
+        this.ply = ply;
+    }
+
+    /**
+     * Get current ply
+     * @return ply (0 = first position)
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Get last ply (the undone plies included)
+     * @return last ply
+     */
+    public int getLastPly() {
+        return size - 1;
+    }
+
+    /**
+     * Get position of the ply
+     * @param ply ply (0..getLastPly())
+     * @return position
+     */
+    public Position getPosition(int ply) {
+        return new Position(black[ply], white[ply], isBlackGo[ply]);
+    }
+
+    /**
+     * Get possible moves of the side to move of the ply
+     * @param ply ply (0..getLastPly())
+     * @return mask of the possible moves (0 if the side has to pass or the game is over)
+     */
+    public long getPossibleMoves(int ply) {
+        return possibleMoves[ply];
+    }
+
+    /**
+     * Get move to the ply
+     * @param ply ply (0..getLastPly())
+     * @return square of the move (PASS for the pass and the first ply)
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    /**
+     * Check the side to move of the ply
+     * @param ply ply (0..getLastPly())
+     * @return true if black goes
+     */
+    public boolean isBlackGo(int ply) {
+        return isBlackGo[ply];
+    }
+
+    /**
+     * Override toString method
+     * @return moves of the history (passes as "--", the current ply marked by '*')
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i < size; i++) {
+            if (i > 1) {
+                text.append(' ');
+            }
+            if (moves[i] == PASS) {
+                text.append("--");
+            } else {
+                Point point = BitBoard.toPoint(moves[i]);
+                text.append(point.x()).append(point.y());
+            }
+            if (i == ply) {
+                text.append('*');
+            }
+        }
+        return text.toString();
+    }
+}
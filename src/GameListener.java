@@ -0,0 +1,88 @@
+/**
+ * Listener of the game events (all methods do nothing by default)
+ */
+public interface GameListener {
+    /**
+     * Move is made
+     * @param point coordinates of the move
+     * @param isBlack flag if black moved
+     * @param isComputer flag if AI moved
+     */
+    default void moveMade(Point point, boolean isBlack, boolean isComputer) {
+    }
+
+    /**
+     * Move is undone
+     * @param point coordinates of the undone move
+     */
+    default void moveUndone(Point point) {
+    }
+
+    /**
+     * Player has no possible moves and passes
+     * @param isBlack flag if black passed
+     */
+    default void passed(boolean isBlack) {
+    }
+
+    /**
+     * Move is rejected (the cell is not a possible move)
+     * @param point coordinates of the rejected move
+     */
+    default void moveRejected(Point point) {
+    }
+
+    /**
+     * Undo is rejected (there are no moves to cancel)
+     */
+    default void undoRejected() {
+    }
+
+    /**
+     * Redo is rejected (there are no cancelled moves)
+     */
+    default void redoRejected() {
+    }
+
+    /**
+     * Position of the game history is restored
+     * @param ply restored ply (0 = first position)
+     * @param lastPly last ply of the history
+     */
+    default void historyRestored(int ply, int lastPly) {
+    }
+
+    /**
+     * Number of disks changed
+     * @param black number of black disks
+     * @param white number of white disks
+     */
+    default void scoreChanged(int black, int white) {
+    }
+
+    /**
+     * Monte Carlo search of AI finished
+     * @param playouts number of playouts (by all threads)
+     * @param nanos search time in nanoseconds
+     */
+    default void playoutsMade(long playouts, long nanos) {
+    }
+
+    /**
+     * Endgame solver found the move of AI
+     * @param score disks difference for the moving player (sign only in the win/loss/draw mode)
+     * @param isWinLossDraw flag if the solver searched only for win, loss or draw
+     * @param nodes number of the solver nodes
+     * @param nanos solve time in nanoseconds
+     */
+    default void endgameSolved(int score, boolean isWinLossDraw, long nodes, long nanos) {
+    }
+
+    /**
+     * Game is over (no one can move)
+     * @param black number of black disks
+     * @param white number of white disks
+     */
+    default void gameOver(int black, int white) {
+    }
+}
@@ -0,0 +1,163 @@
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * immutable record of one game: header and one byte per ply (square of the move, PASS for the pass)
+ * Binary format of the record: flags, black player, white player, black disks, white disks, number of plies
+ * (bytes), time of the end (long, milliseconds), the start position (two longs, only if it is not the usual one),
+ * then the plies. Players are HUMAN or the difficulty level of the AI (ordinal + 1).
+ * Records file: magic, version, then the records one after another.
+ * @param time time of the end of the game (milliseconds since the epoch)
+ * @param blackPlayer black player (HUMAN or the AI level code)
+ * @param whitePlayer white player (HUMAN or the AI level code)
+ * @param start start position of the game
+ * @param moves squares of the plies (PASS for the pass)
+ * @param black number of black disks at the end
+ * @param white number of white disks at the end
+ */
+public record GameRecord(long time, int blackPlayer, int whitePlayer, Position start, byte[] moves,
+                         int black, int white) {
+    /** Default records file (in the working directory) */
+    public static final Path DEFAULT_PATH = Path.of("games.bin");
+
+    /** First bytes of the records file ("RVGR") */
+    static final int MAGIC = 0x52564752;
+
+    /** Version of the file format */
+    static final int VERSION = 1;
+
+    /** Size of the file header in bytes */
+    static final int FILE_HEADER_SIZE = 8;
+
+    /** Size of the record header in bytes (without the start position) */
+    static final int HEADER_SIZE = 14;
+
+    /** Player code of the human */
+    public static final int HUMAN = 0;
+
+    /** Flag of the record with the start position */
+    private static final int CUSTOM_START = 1;
+
+    /** Flag of the start position with black to move */
+    private static final int BLACK_GO = 2;
+
+    /**
+     * Make the record of the game history (the plies up to the current one)
+     * @param history history of the game
+     * @param blackPlayer black player (HUMAN or the AI level code)
+     * @param whitePlayer white player (HUMAN or the AI level code)
+     * @return record of the game
+     */
+    public static GameRecord of(GameHistory history, int blackPlayer, int whitePlayer) {
+        byte[] moves = new byte[history.getPly()];
+        for (int ply = 1; ply <= history.getPly(); ply++) {
+            moves[ply - 1] = (byte) history.getMove(ply);
+        }
+        Position end = history.getPosition(history.getPly());
+        return new GameRecord(System.currentTimeMillis(), blackPlayer, whitePlayer, history.getPosition(0), moves,
+                Long.bitCount(end.black()), Long.bitCount(end.white()));
+    }
+
+    /**
+     * Get player code of the AI level
+     * @param level difficulty level
+     * @return player code
+     */
+    public static int player(Game.DifficultyLevel level) {
+        return level.ordinal() + 1;
+    }
+
+    /**
+     * Get name of the player
+     * @param player player code
+     * @return "HUMAN" or the difficulty level
+     */
+    public static String playerName(int player) {
+        return player == HUMAN ? "HUMAN" : Game.DifficultyLevel.values()[player - 1].name();
+    }
+
+    /**
+     * Get size of the record in bytes
+     * @return size
+     */
+    public int size() {
+        return HEADER_SIZE + (start.equals(Position.START) ? 0 : 16) + moves.length;
+    }
+
+    /**
+     * Write the record to the buffer
+     * @param buffer buffer with at least size() bytes remaining
+     */
+    public void write(ByteBuffer buffer) {
+        boolean isCustomStart = !start.equals(Position.START);
+        buffer.put((byte) ((isCustomStart ? CUSTOM_START : 0) | (start.isBlackGo() ? BLACK_GO : 0)))
+                .put((byte) blackPlayer).put((byte) whitePlayer).put((byte) black).put((byte) white)
+                .put((byte) moves.length).putLong(time);
+        if (isCustomStart) {
+            buffer.putLong(start.black()).putLong(start.white());
+        }
+        buffer.put(moves);
+    }
+
+    /**
+     * Get size of the record from its header
+     * @param buffer buffer at the start of the record with at least HEADER_SIZE bytes remaining
+     * @return size of the record in bytes
+     */
+    static int size(ByteBuffer buffer) {
+        int position = buffer.position();
+        return HEADER_SIZE + ((buffer.get(position) & CUSTOM_START) != 0 ? 16 : 0)
+                + Byte.toUnsignedInt(buffer.get(position + 5));
+    }
+
+    /**
+     * Read the record from the buffer
+     * @param buffer buffer with the whole record remaining
+     * @return record
+     */
+    public static GameRecord read(ByteBuffer buffer) {
+        int flags = buffer.get();
+        int blackPlayer = buffer.get();
+        int whitePlayer = buffer.get();
+        int black = buffer.get();
+        int white = buffer.get();
+        byte[] moves = new byte[Byte.toUnsignedInt(buffer.get())];
+        long time = buffer.getLong();
+        Position start = (flags & CUSTOM_START) != 0
+                ? new Position(buffer.getLong(), buffer.getLong(), (flags & BLACK_GO) != 0) : Position.START;
+        buffer.get(moves);
+        return new GameRecord(time, blackPlayer, whitePlayer, start, moves, black, white);
+    }
+
+    /**
+     * Replay the moves from the start position checking the rules
+     * @return end position of the game
+     * @throws IllegalArgumentException if a move is not possible or the disks do not match the header
+     */
+    public Position replay() {
+        long player = start.player();
+        long opponent = start.opponent();
+        boolean isBlackGo = start.isBlackGo();
+        for (int ply = 0; ply < moves.length; ply++) {
+            long possibleMoves = BitBoard.legalMoves(player, opponent);
+            int square = moves[ply];
+            if (square == GameHistory.PASS ? possibleMoves != 0 : (possibleMoves & (1L << square)) == 0) {
+                throw new IllegalArgumentException("Impossible move " + square + " at ply " + (ply + 1));
+            }
+            if (square != GameHistory.PASS) {
+                long changed = (1L << square) | BitBoard.flips(player, opponent, square);
+                player |= changed;
+                opponent &= ~changed;
+            }
+            long swap = player;
+            player = opponent;
+            opponent = swap;
+            isBlackGo = !isBlackGo;
+        }
+        Position end = new Position(isBlackGo ? player : opponent, isBlackGo ? opponent : player, isBlackGo);
+        if (Long.bitCount(end.black()) != black || Long.bitCount(end.white()) != white) {
+            throw new IllegalArgumentException("Disks " + black + ":" + white + " do not match the moves");
+        }
+        return end;
+    }
+}
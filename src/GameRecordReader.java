@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of the records file
+ * The file is read by the batches into one buffer, so files of millions of games need no memory
+ * beyond the buffer. The reader is iterated once.
+ */
+public class GameRecordReader implements Iterable<GameRecord>, AutoCloseable {
+    /** Channel of the records file */
+    private final FileChannel channel;
+
+    /** Buffer of the read bytes (in the read mode) */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BATCH_SIZE);
+
+    /** Path to the records file (for the messages) */
+    private final Path path;
+
+    /**
+     * Constructor of the reader
+     * @param path path to the records file
+     * @throws IOException if the file can not be opened or is not a records file
+     */
+    public GameRecordReader(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.flip();
+        try {
+            if (!fill(GameRecord.FILE_HEADER_SIZE) || buffer.getInt() != GameRecord.MAGIC
+                    || buffer.getInt() != GameRecord.VERSION) {
+                throw new IOException("Wrong game records format: " + path);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the file until the buffer has enough bytes
+     * @param bytes number of bytes
+     * @return true if the buffer has the bytes (false at the end of the file)
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        int read = 0;
+        while (buffer.position() < bytes && read >= 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Read the next record
+     * @return record (null at the end of the file)
+     * @throws IOException if the file can not be read or the last record is truncated
+     */
+    public GameRecord read() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+        if (!fill(GameRecord.HEADER_SIZE) || !fill(GameRecord.size(buffer))) {
+            throw new IOException("Truncated game record: " + path);
+        }
+        return GameRecord.read(buffer);
+    }
+
+    @Override
+    public Iterator<GameRecord> iterator() {
+        return new Iterator<>() {
+            /** Next record (null if it is not read yet) */
+            private GameRecord next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = read();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public GameRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                GameRecord record = next;
+                next = null;
+                return record;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer appending the game records to the records file
+ * Records are collected in the buffer and written to the file channel by batches (on a full buffer,
+ * flush and close). Games of several threads may share one writer.
+ */
+public class GameRecordWriter implements AutoCloseable {
+    /** Size of the batch buffer in bytes */
+    static final int BATCH_SIZE = 1 << 16;
+
+    /** Channel of the records file */
+    private final FileChannel channel;
+
+    /** Batch of the records to write */
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE);
+
+    /** Number of the written records */
+    private long records;
+
+    /**
+     * Constructor of the writer (the file is created if it does not exist)
+     * @param path path to the records file
+     * @throws IOException if the file can not be opened or is not a records file
+     */
+    public GameRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                batch.putInt(GameRecord.MAGIC).putInt(GameRecord.VERSION);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(GameRecord.FILE_HEADER_SIZE);
+                int read = 0;
+                while (header.hasRemaining() && read >= 0) {
+                    read = channel.read(header, header.position());
+                }
+                if (header.hasRemaining() || header.getInt(0) != GameRecord.MAGIC
+                        || header.getInt(4) != GameRecord.VERSION) {
+                    throw new IOException("Wrong game records format: " + path);
+                }
+                channel.position(channel.size());
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add the record to the batch (the batch is written when it is full)
+     * @param record record of the game
+     */
+    public synchronized void write(GameRecord record) throws IOException {
+        if (batch.remaining() < record.size()) {
+            flush();
+        }
+        record.write(batch);
+        records++;
+    }
+
+    /**
+     * Write the batch to the file
+     */
+    public synchronized void flush() throws IOException {
+        batch.flip();
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Get number of the records written by the writer
+     * @return number of records
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.io.IOException;
+
+/**
+ * Listener recording the finished games of the field to the records file
+ */
+public class GameRecorder implements GameListener {
+    /** Field of the recorded games */
+    private final Field field;
+
+    /** Writer of the records */
+    private final GameRecordWriter writer;
+
+    /**
+     * Constructor of the recorder
+     * @param field field of the games
+     * @param writer writer of the records
+     */
+    public GameRecorder(Field field, GameRecordWriter writer) {
+        this.field = field;
+        this.writer = writer;
+    }
+
+    @Override
+    public void gameOver(int black, int white) {
+        int computer = GameRecord.player(field.getDifficultyLevel());
+        int blackPlayer = field.getGameMode() == Game.GameMode.COMPUTER_VS_COMPUTER ? computer : GameRecord.HUMAN;
+        int whitePlayer = field.getGameMode() == Game.GameMode.PLAYER_VS_PLAYER ? GameRecord.HUMAN : computer;
+        try {
+            writer.write(GameRecord.of(field.getHistory(), blackPlayer, whitePlayer));
+        } catch (IOException e) {
+            System.out.println("Game is not recorded: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replayer of the records file: checks every game by the rules and collects the statistics of the games
+ * With the engine settings the positions of the games are also given to the AI, counting how often
+ * it chooses the recorded move.
+ */
+public class GameReplayer {
+    /** Settings of the AI to replay the positions through (null = rules check only) */
+    private final EngineSettings engine;
+
+    /** Field of the AI (null = rules check only) */
+    private final Field field;
+
+    /** Move of the AI on the field */
+    private final Point[] engineMove = new Point[1];
+
+    /** Number of the replayed games */
+    private long games;
+
+    /** Number of the games which break the rules */
+    private long invalid;
+
+    /** Number of the plies (passes included) */
+    private long plies;
+
+    /** Number of the passes */
+    private long passes;
+
+    /** Number of the won games by black, draws and won games by white */
+    private final long[] results = new long[3];
+
+    /** Sum of the disks differences (black minus white) */
+    private long difference;
+
+    /** Max number of black disks */
+    private int maxBlack;
+
+    /** Max number of white disks */
+    private int maxWhite;
+
+    /** Number of the games by the players ("BLACK vs WHITE") */
+    private final Map<String, Long> matches = new TreeMap<>();
+
+    /** Number of the moves given to the AI */
+    private long engineMoves;
+
+    /** Number of the moves where the AI chose the recorded move */
+    private long agreedMoves;
+
+    /**
+     * Constructor of the replayer
+     * @param engine settings of the AI to replay the positions through (null = rules check only)
+     */
+    public GameReplayer(EngineSettings engine) {
+        this.engine = engine;
+        if (engine == null) {
+            field = null;
+            return;
+        }
+        field = new Field();
+        field.setGameMode(Game.GameMode.COMPUTER_VS_COMPUTER);
+        engine.apply(field);
+        field.addListener(new GameListener() {
+            @Override
+            public void moveMade(Point point, boolean isBlack, boolean isComputer) {
+                engineMove[0] = point;
+            }
+        });
+    }
+
+    /**
+     * Replay the game
+     * @param record record of the game
+     */
+    public void replay(GameRecord record) {
+        games++;
+        try {
+            record.replay();
+        } catch (IllegalArgumentException e) {
+            invalid++;
+            return;
+        }
+        plies += record.moves().length;
+        for (byte move : record.moves()) {
+            if (move == GameHistory.PASS) {
+                passes++;
+            }
+        }
+        results[Integer.signum(record.white() - record.black()) + 1]++;
+        difference += record.black() - record.white();
+        maxBlack = Math.max(maxBlack, record.black());
+        maxWhite = Math.max(maxWhite, record.white());
+        matches.merge(GameRecord.playerName(record.blackPlayer()) + " vs "
+                + GameRecord.playerName(record.whitePlayer()), 1L, Long::sum);
+        if (field != null) {
+            replayThroughEngine(record);
+        }
+    }
+
+    /**
+     * Give every position of the game to the AI and compare its move with the recorded one
+     * @param record record of the game (checked by the rules)
+     */
+    private void replayThroughEngine(GameRecord record) {
+        long player = record.start().player();
+        long opponent = record.start().opponent();
+        boolean isBlackGo = record.start().isBlackGo();
+        for (byte move : record.moves()) {
+            if (move != GameHistory.PASS) {
+                field.setPosition(new Position(isBlackGo ? player : opponent, isBlackGo ? opponent : player,
+                        isBlackGo));
+                engineMove[0] = null;
+                field.move();
+                engineMoves++;
+                if (engineMove[0] != null && BitBoard.toSquare(engineMove[0]) == move) {
+                    agreedMoves++;
+                }
+                long changed = (1L << move) | BitBoard.flips(player, opponent, move);
+                player |= changed;
+                opponent &= ~changed;
+            }
+            long swap = player;
+            player = opponent;
+            opponent = swap;
+            isBlackGo = !isBlackGo;
+        }
+    }
+
+    /**
+     * Print the statistics of the replayed games
+     * @param seconds duration of the replay
+     */
+    public void printSummary(double seconds) {
+        long valid = Math.max(1, games - invalid);
+        System.out.printf("%d games (%d break the rules), %d plies, %d passes, %.0f games/s%n",
+                games, invalid, plies, passes, games / Math.max(seconds, 1e-9));
+        System.out.printf("black wins %d, draws %d, white wins %d, average disks difference %+.2f%n",
+                results[0], results[1], results[2], (double) difference / valid);
+        System.out.println("max black disks " + maxBlack + ", max white disks " + maxWhite);
+        for (Map.Entry<String, Long> match : matches.entrySet()) {
+            System.out.println(match.getKey() + ": " + match.getValue());
+        }
+        if (engine != null) {
+            System.out.printf("%s chose the recorded move %d of %d times (%.1f%%)%n", engine, agreedMoves,
+                    engineMoves, 100.0 * agreedMoves / Math.max(1, engineMoves));
+        }
+    }
+
+    /**
+     * Main function
+     * @param args records file, then options engine=LEVEL[:budget] (see EngineSettings), limit=N
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java GameReplayer <records> [engine=LEVEL[:budget]] [limit=N]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        GameReplayer replayer = new GameReplayer(options.containsKey("engine")
+                ? EngineSettings.parse(options.get("engine")) : null);
+        long limit = Long.parseLong(options.getOrDefault("limit", String.valueOf(Long.MAX_VALUE)));
+        long start = System.nanoTime();
+        try (GameRecordReader reader = new GameRecordReader(Path.of(args[0]))) {
+            for (GameRecord record : reader) {
+                if (replayer.games == limit) {
+                    break;
+                }
+                replayer.replay(record);
+            }
+        }
+        replayer.printSummary((System.nanoTime() - start) / 1e9);
+    }
+}
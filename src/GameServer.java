@@ -0,0 +1,432 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server of many games over the local socket (TCP on the loopback address or Unix domain socket)
+ * Every connection is one game session served by its own (virtual, if the JVM has them) thread.
+ * Line protocol, one response line per request:
+ * <pre>
+ * NEW [LEVEL[:budget]] [BLACK|WHITE]  new game, the human plays the given side (black by default)
+ * MOVE x y                            move of the human, the AI replies at once
+ * AI                                  make the pending AI moves (after "ERROR busy")
+ * MOVES                               possible moves of the human
+ * POSITION                            current position
+ * QUIT                                close the connection
+ * </pre>
+ * Responses: "OK position ai=x:y,x:y" (moves of the AI, '-' if none, and " end=black:white" after the last move),
+ * "MOVES x:y,x:y", "POSITION position", "BYE" or "ERROR message".
+ * AI moves run on the bounded pool of workers (every worker has its own field with the search cache), a full
+ * queue answers "ERROR busy", so a burst of AI requests does not hold the connection threads.
+ * The budget of the clients is limited by the server (max depth and max time per move), and every AI move
+ * has the time per move as the deadline, so no session holds a worker for long.
+ */
+public class GameServer implements AutoCloseable {
+    /** Default TCP port */
+    public static final int DEFAULT_PORT = 7777;
+
+    /** Default number of the queued AI requests per worker */
+    private static final int DEFAULT_QUEUE_PER_WORKER = 64;
+
+    /** Default max search depth of the clients */
+    public static final int DEFAULT_MAX_DEPTH = 10;
+
+    /** Default max time per AI move (in milliseconds) */
+    public static final long DEFAULT_MAX_TIME = 5000;
+
+    /** Max number of the connections waiting to be accepted */
+    private static final int BACKLOG = 1024;
+
+    /** Listening channel */
+    private final ServerSocketChannel server;
+
+    /** Address of the server */
+    private final SocketAddress address;
+
+    /** Threads of the connections */
+    private final ExecutorService connections = newConnectionExecutor("game-session");
+
+    /** Pool of the AI moves */
+    private final ThreadPoolExecutor workers;
+
+    /** Fields of the AI owned by the current worker */
+    private final ThreadLocal<Field> fields = ThreadLocal.withInitial(this::newField);
+
+    /** Number of empty cells to solve the endgame exactly from (0 = no solver) */
+    private int endgameThreshold = EndgameSolver.DEFAULT_THRESHOLD;
+
+    /** Max search depth of the clients */
+    private volatile int maxDepth = DEFAULT_MAX_DEPTH;
+
+    /** Max time per AI move, the deadline of every AI move (in milliseconds) */
+    private volatile long maxTimeMillis = DEFAULT_MAX_TIME;
+
+    /** Number of the open sessions */
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /** Number of the handled requests */
+    private final LongAdder requests = new LongAdder();
+
+    /** Number of the AI moves */
+    private final LongAdder aiMoves = new LongAdder();
+
+    /** Number of the AI requests rejected by the full queue */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructor of the server (the socket is bound at once)
+     * @param address address to listen (TCP or Unix domain socket)
+     * @param workers number of the AI workers
+     * @param queue max number of the queued AI requests
+     */
+    public GameServer(SocketAddress address, int workers, int queue) throws IOException {
+        this.address = address;
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address, BACKLOG);
+        this.workers = new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queue)), task -> {
+                    Thread thread = new Thread(task, "ai-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Set number of empty cells to solve the endgame exactly from (for the workers started after the call)
+     * @param empties number of empty cells (0 = no solver)
+     */
+    public void setEndgameThreshold(int empties) {
+        endgameThreshold = empties;
+    }
+
+    /**
+     * Set the limits of the AI budget of the clients (for the sessions started after the call)
+     * @param maxDepth max search depth
+     * @param maxTimeMillis max time per AI move, the deadline of every AI move (in milliseconds)
+     */
+    public void setLimits(int maxDepth, long maxTimeMillis) {
+        this.maxDepth = Math.max(1, maxDepth);
+        this.maxTimeMillis = Math.max(1, maxTimeMillis);
+    }
+
+    /**
+     * Create the field of the AI worker
+     * @return field
+     */
+    private Field newField() {
+        Field field = new Field();
+        field.setGameMode(Game.GameMode.COMPUTER_VS_COMPUTER);
+        field.setEndgameThreshold(endgameThreshold);
+        return field;
+    }
+
+    /**
+     * Create the executor with one thread per task: virtual threads if the JVM has them (Java 21+),
+     * daemon platform threads otherwise
+     * @param name name of the platform threads
+     * @return executor
+     */
+    static ExecutorService newConnectionExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Get the address of the options: unix=path for the Unix domain socket, otherwise port=N on the loopback address
+     * @param options options of the command line
+     * @return socket address
+     */
+    static SocketAddress address(Map<String, String> options) {
+        if (options.containsKey("unix")) {
+            return UnixDomainSocketAddress.of(options.get("unix"));
+        }
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT))));
+    }
+
+    /**
+     * Accept the connections until the server is closed
+     */
+    public void serve() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.execute(() -> handle(channel));
+            } catch (IOException e) {
+                if (server.isOpen()) {
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve one connection (on its own thread)
+     * @param channel channel of the connection
+     */
+    private void handle(SocketChannel channel) {
+        sessions.incrementAndGet();
+        try (channel;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                     StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                     StandardCharsets.UTF_8))) {
+            GameSession session = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                requests.increment();
+                String[] command = line.strip().split("\\s+");
+                String response;
+                try {
+                    switch (command[0].toUpperCase()) {
+                        case "NEW" -> {
+                            session = newSession(command);
+                            response = aiReply(session);
+                        }
+                        case "MOVE" -> response = move(session, command);
+                        case "AI" -> response = aiReply(checked(session));
+                        case "MOVES" -> response = "MOVES " + squares(checked(session).possibleMoves());
+                        case "POSITION" -> response = "POSITION " + checked(session).getPosition();
+                        case "QUIT" -> response = "BYE";
+                        default -> response = "ERROR unknown command: " + command[0];
+                    }
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    response = "ERROR " + e.getMessage();
+                }
+                writer.write(response);
+                writer.newLine();
+                writer.flush();
+                if (response.equals("BYE")) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // the client has gone, the session is dropped
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Start new session of the NEW command
+     * @param command words of the command
+     * @return session
+     */
+    private GameSession newSession(String[] command) {
+        EngineSettings engine = EngineSettings.parse(command.length > 1 ? command[1] : "ADVANCED")
+                .limit(maxDepth, maxTimeMillis);
+        boolean isHumanBlack = command.length <= 2 || !command[2].equalsIgnoreCase("WHITE");
+        return new GameSession(engine, isHumanBlack);
+    }
+
+    /**
+     * Check that the game is started
+     * @param session session of the connection (null before NEW)
+     * @return session
+     * @throws IllegalStateException if there is no game
+     */
+    private static GameSession checked(GameSession session) {
+        if (session == null) {
+            throw new IllegalStateException("no game, send NEW first");
+        }
+        return session;
+    }
+
+    /**
+     * Make the human move of the MOVE command and the AI replies
+     * @param session session of the connection
+     * @param command words of the command
+     * @return response line
+     */
+    private String move(GameSession session, String[] command) {
+        checked(session);
+        if (command.length != 3) {
+            throw new IllegalArgumentException("MOVE x y expected");
+        }
+        int x = Integer.parseInt(command[1]);
+        int y = Integer.parseInt(command[2]);
+        if (x <= 0 || y <= 0 || x > Game.BOARD_SIZE || y > Game.BOARD_SIZE) {
+            throw new IllegalArgumentException("position is out of board");
+        }
+        if (session.isOver() || !session.isHumanTurn() || !session.play(BitBoard.toSquare(new Point(x, y)))) {
+            throw new IllegalArgumentException("illegal move " + x + " " + y);
+        }
+        return aiReply(session);
+    }
+
+    /**
+     * Make the AI moves until the human has to move or the game is over (passes are made for both sides)
+     * @param session session of the connection
+     * @return response line
+     */
+    private String aiReply(GameSession session) {
+        StringBuilder moves = new StringBuilder();
+        while (!session.isOver() && (!session.isHumanTurn() || session.possibleMoves() == 0)) {
+            if (session.isHumanTurn()) {
+                session.play(-1);
+                continue;
+            }
+            int square = aiMove(session);
+            session.play(square);
+            if (square >= 0) {
+                Point point = BitBoard.toPoint(square);
+                moves.append(moves.length() == 0 ? "" : ",").append(point.x()).append(':').append(point.y());
+            }
+        }
+        StringBuilder response = new StringBuilder("OK ").append(session.getPosition()).append(" ai=")
+                .append(moves.length() == 0 ? "-" : moves);
+        if (session.isOver()) {
+            Position end = session.getPosition();
+            response.append(" end=").append(Long.bitCount(end.black())).append(':')
+                    .append(Long.bitCount(end.white()));
+        }
+        return response.toString();
+    }
+
+    /**
+     * Get the AI move from the worker pool
+     * @param session session of the connection (the AI is to move)
+     * @return square of the move (-1 = pass)
+     * @throws IllegalStateException if the queue of the workers is full
+     */
+    private int aiMove(GameSession session) {
+        Position position = session.getPosition();
+        EngineSettings engine = session.getEngine();
+        TimeControl control = new TimeControl(engine.level() == Game.DifficultyLevel.MASTER
+                || engine.level() == Game.DifficultyLevel.MCTS ? engine.timeMillis() : maxTimeMillis, 0, 0);
+        Future<Integer> move;
+        try {
+            move = workers.submit(() -> {
+                Field field = fields.get();
+                engine.apply(field);
+                field.setTimeControl(control);
+                field.setPosition(position);
+                field.move();
+                GameHistory history = field.getHistory();
+                return history.getMove(history.getPly());
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new IllegalStateException("busy");
+        }
+        try {
+            int square = move.get();
+            aiMoves.increment();
+            return square;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Get the squares as "x:y" list
+     * @param squares mask of the squares
+     * @return comma separated points ('-' if there are no squares)
+     */
+    static String squares(long squares) {
+        StringBuilder result = new StringBuilder();
+        for (; squares != 0; squares &= squares - 1) {
+            Point point = BitBoard.toPoint(Long.numberOfTrailingZeros(squares));
+            result.append(result.length() == 0 ? "" : ",").append(point.x()).append(':').append(point.y());
+        }
+        return result.length() == 0 ? "-" : result.toString();
+    }
+
+    /**
+     * Get the status line
+     * @return open sessions, requests, AI moves, rejected AI requests and queued AI requests
+     */
+    public String status() {
+        return String.format("%d sessions, %d requests, %d AI moves, %d rejected, %d queued", sessions.get(),
+                requests.sum(), aiMoves.sum(), rejected.sum(), workers.getQueue().size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+        workers.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress unix) {
+            Files.deleteIfExists(unix.getPath());
+        }
+    }
+
+    /**
+     * Main function
+     * @param args options port=N or unix=path, workers=N (AI pool), queue=N (queued AI requests),
+     *             endgame=N (empty cells of the exact endgame, 0 = no solver), maxdepth=N (max search depth
+     *             of the clients), maxtime=MILLIS (max time per AI move), report=SECONDS
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        int workers = Integer.parseInt(options.getOrDefault("workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int queue = Integer.parseInt(options.getOrDefault("queue", String.valueOf(workers * DEFAULT_QUEUE_PER_WORKER)));
+        SocketAddress address = address(options);
+        GameServer server = new GameServer(address, workers, queue);
+        server.setEndgameThreshold(Integer.parseInt(options.getOrDefault("endgame",
+                String.valueOf(EndgameSolver.DEFAULT_THRESHOLD))));
+        server.setLimits(Integer.parseInt(options.getOrDefault("maxdepth", String.valueOf(DEFAULT_MAX_DEPTH))),
+                Long.parseLong(options.getOrDefault("maxtime", String.valueOf(DEFAULT_MAX_TIME))));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }));
+        int report = Integer.parseInt(options.getOrDefault("report", "10"));
+        if (report > 0) {
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "server-report");
+                thread.setDaemon(true);
+                return thread;
+            }).scheduleAtFixedRate(() -> System.err.println(server.status()), report, report, TimeUnit.SECONDS);
+        }
+        System.out.println("Listening on " + address + " (" + workers + " AI workers)");
+        server.serve();
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the game server: many clients hold their sessions at once and play random moves against the AI
+ * Every client connects, then all clients play games in a loop until the time is over; the time of every
+ * request is recorded to the latency histogram of the engine statistics. The report gives the sessions held,
+ * the moves per second and the latency percentiles.
+ */
+public class GameServerLoadTest {
+    /** Address of the server */
+    private final SocketAddress address;
+
+    /** Settings of the AI of the games */
+    private final EngineSettings engine;
+
+    /** Latencies of the requests */
+    private final EngineStatistics latencies = new EngineStatistics();
+
+    /** Number of the sessions connected at the same time */
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    /** Number of the human moves */
+    private final LongAdder moves = new LongAdder();
+
+    /** Number of the finished games */
+    private final LongAdder games = new LongAdder();
+
+    /** Max pause of the client before the retry of the rejected AI request (in milliseconds) */
+    private static final int MAX_BACKOFF_MILLIS = 10;
+
+    /** Number of the error responses */
+    private final LongAdder errors = new LongAdder();
+
+    /** Number of the AI requests rejected by the busy server */
+    private final LongAdder busy = new LongAdder();
+
+    /** Time to stop the games (in nanoseconds, set when all clients are connected) */
+    private volatile long deadline = Long.MAX_VALUE;
+
+    /**
+     * Constructor of the load test
+     * @param address address of the server
+     * @param engine settings of the AI of the games
+     */
+    public GameServerLoadTest(SocketAddress address, EngineSettings engine) {
+        this.address = address;
+        this.engine = engine;
+    }
+
+    /**
+     * Play games on one session until the deadline (on the client thread)
+     * @param seed seed of the random moves
+     * @param connected latch of the clients which tried to connect
+     */
+    private void play(long seed, CountDownLatch connected) throws IOException, InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open()) {
+            try {
+                channel.connect(address);
+            } finally {
+                connected.countDown();
+            }
+            sessions.incrementAndGet();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                    StandardCharsets.UTF_8));
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                    StandardCharsets.UTF_8));
+            connected.await();
+            String response = request(reader, writer, "NEW " + engine);
+            while (System.nanoTime() < deadline) {
+                String[] words = response.split(" ");
+                if (response.equals("ERROR busy")) {
+                    busy.increment();
+                    Thread.sleep(1 + random.nextInt(MAX_BACKOFF_MILLIS));
+                    response = request(reader, writer, "AI");
+                    continue;
+                } else if (!words[0].equals("OK")) {
+                    errors.increment();
+                    response = request(reader, writer, "NEW " + engine);
+                    continue;
+                }
+                if (response.contains(" end=")) {
+                    games.increment();
+                    response = request(reader, writer, "NEW " + engine + (random.nextBoolean() ? " BLACK" : " WHITE"));
+                    continue;
+                }
+                Position position = Position.parse(words[1] + " " + words[2]);
+                long possible = BitBoard.legalMoves(position.player(), position.opponent());
+                for (int i = random.nextInt(Long.bitCount(possible)); i > 0; i--) {
+                    possible &= possible - 1;
+                }
+                Point point = BitBoard.toPoint(Long.numberOfTrailingZeros(possible));
+                response = request(reader, writer, "MOVE " + point.x() + " " + point.y());
+                moves.increment();
+            }
+            request(reader, writer, "QUIT");
+        }
+    }
+
+    /**
+     * Send the request and wait for the response, recording the latency
+     * @param reader input of the connection
+     * @param writer output of the connection
+     * @param request request line
+     * @return response line
+     */
+    private String request(BufferedReader reader, BufferedWriter writer, String request) throws IOException {
+        long start = System.nanoTime();
+        writer.write(request);
+        writer.newLine();
+        writer.flush();
+        String response = reader.readLine();
+        if (response == null) {
+            throw new IOException("Server closed the connection");
+        }
+        latencies.record(new EngineStatistics.Sample(System.nanoTime() - start, 0, 0, 0, 0, 0, 0));
+        return response;
+    }
+
+    /**
+     * Connect the clients, play for the time and print the report
+     * @param clients number of the sessions
+     * @param seconds duration of the games (after all clients are connected)
+     * @param seed seed of the random moves
+     */
+    public void run(int clients, int seconds, long seed) throws InterruptedException {
+        ExecutorService executor = GameServer.newConnectionExecutor("load-client");
+        CountDownLatch connected = new CountDownLatch(clients);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            long clientSeed = seed + i;
+            futures.add(executor.submit(() -> {
+                play(clientSeed, connected);
+                return null;
+            }));
+        }
+        connected.await();
+        long start = System.nanoTime();
+        deadline = start + seconds * 1_000_000_000L;
+        int held = sessions.get();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                System.err.println("Client failed: " + e.getCause());
+            }
+        }
+        executor.shutdownNow();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d sessions held, %d games, %d moves (%.0f moves/s), %d busy retries, %d errors%n", held,
+                games.sum(), moves.sum(), moves.sum() / elapsed, busy.sum(), errors.sum());
+        System.out.printf("request latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", latencies.getLatencyP50Millis(),
+                latencies.getLatencyP99Millis(), latencies.getMaxMoveMillis());
+    }
+
+    /**
+     * Main function
+     * @param args options port=N or unix=path (see GameServer), clients=N, seconds=N, engine=LEVEL[:budget], seed=N
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        GameServerLoadTest test = new GameServerLoadTest(GameServer.address(options),
+                EngineSettings.parse(options.getOrDefault("engine", "ADVANCED")));
+        test.run(Integer.parseInt(options.getOrDefault("clients", "100")),
+                Integer.parseInt(options.getOrDefault("seconds", "10")),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+    }
+}
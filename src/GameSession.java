@@ -0,0 +1,100 @@
+/**
+ * Compact state of one game of the server: the bitboards, the side to move, the human's side and the AI settings
+ * The session has no engine, history or listeners (about 40 bytes on the heap, the settings are shared),
+ * the AI moves are made by the worker pool of the server from the position of the session.
+ */
+public final class GameSession {
+    /** Black disks (bitboard) */
+    private long black;
+
+    /** White disks (bitboard) */
+    private long white;
+
+    /** Flag if black goes */
+    private boolean isBlackGo;
+
+    /** Flag if the human plays black */
+    private final boolean isHumanBlack;
+
+    /** Settings of the AI */
+    private final EngineSettings engine;
+
+    /**
+     * Constructor of the session (the game starts from the start position)
+     * @param engine settings of the AI
+     * @param isHumanBlack flag if the human plays black
+     */
+    public GameSession(EngineSettings engine, boolean isHumanBlack) {
+        this.engine = engine;
+        this.isHumanBlack = isHumanBlack;
+        black = BitBoard.START_BLACK;
+        white = BitBoard.START_WHITE;
+        isBlackGo = true;
+    }
+
+    /**
+     * Get settings of the AI
+     * @return settings
+     */
+    public EngineSettings getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get current position of the game
+     * @return position
+     */
+    public Position getPosition() {
+        return new Position(black, white, isBlackGo);
+    }
+
+    /**
+     * Get possible moves of the side to move
+     * @return mask of the squares
+     */
+    public long possibleMoves() {
+        return isBlackGo ? BitBoard.legalMoves(black, white) : BitBoard.legalMoves(white, black);
+    }
+
+    /**
+     * Check if the human moves now (the AI moves otherwise)
+     * @return true if the human is the side to move
+     */
+    public boolean isHumanTurn() {
+        return isBlackGo == isHumanBlack;
+    }
+
+    /**
+     * Check if there are no moves to go for both sides
+     * @return true if the game is over
+     */
+    public boolean isOver() {
+        return BitBoard.legalMoves(black, white) == 0 && BitBoard.legalMoves(white, black) == 0;
+    }
+
+    /**
+     * Make the move of the side to move (the side passes if it has no possible moves)
+     * @param square square of the move (-1 = pass)
+     * @return true if the move is legal
+     */
+    public boolean play(int square) {
+        long moves = possibleMoves();
+        if (square < 0 ? moves != 0 : (moves & (1L << square)) == 0) {
+            return false;
+        }
+        if (square >= 0) {
+            long player = isBlackGo ? black : white;
+            long opponent = isBlackGo ? white : black;
+            long changed = (1L << square) | BitBoard.flips(player, opponent, square);
+            if (isBlackGo) {
+                black |= changed;
+                white &= ~changed;
+            } else {
+                white |= changed;
+                black &= ~changed;
+            }
+        }
+        isBlackGo = !isBlackGo;
+        return true;
+    }
+}
@@ -1,15 +1,37 @@
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Main class
  */
 public class Main {
+    /** System property with the period (in seconds) of the engine statistics log (no log by default) */
+    private static final String STATISTICS_LOG_PROPERTY = "reversi.statsLogSeconds";
+
+    /** Statistics of the AI moves (shared with the JMX) */
+    private static final EngineStatistics statistics = new EngineStatistics();
+
+    /** Flag if the engine statistics are collected (off by default, on with the periodic log) */
+    private static boolean isStatisticsEnabled = Long.getLong(STATISTICS_LOG_PROPERTY, 0) > 0;
+
+    /** Flag if the AI searches on the human's time */
+    private static boolean isPonderingEnabled = false;
+
+    /** Flag if the possible moves are ranked by the analysis */
+    private static boolean isAnalysisEnabled = false;
+
     /**
      * Get the input from the user
      */
     private static Point getPoint() {
-        System.out.print("Enter the position to move (e.g. '1 2'), 'z' to cancel last move or 'b' to return to menu: ");
+        System.out.print("Enter the position to move (e.g. '1 2'), 'z' to cancel last move, 'r' to redo it, "
+                + "'g N' to go to move N or 'b' to return to menu: ");
         try {
             BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
             String input = reader.readLine();
@@ -17,7 +39,14 @@ public class Main {
                 return new Point(-1, -1);
             }
             String[] line = input.split(" ");
-            if (line.length == 2) {
+            if (line.length == 2 && line[0].equals("g")) {
+                int ply = Integer.parseInt(line[1]);
+                if (ply < 0) {
+                    System.out.println("Wrong move number!");
+                    return null;
+                }
+                return new Point(-2, ply);
+            } else if (line.length == 2) {
                 int x = Integer.parseInt(line[0]);
                 int y = Integer.parseInt(line[1]);
                 if (x <= 0 || y <= 0 || x > Game.BOARD_SIZE || y > Game.BOARD_SIZE) {
@@ -27,6 +56,8 @@ public class Main {
                 return new Point(x, y);
             } else if (line.length == 1 && line[0].equals("z")) {
                 return new Point(0, 0);
+            } else if (line.length == 1 && line[0].equals("r")) {
+                return new Point(0, -1);
             } else if (line.length == 1 && line[0].equals("b")) {
                 return new Point(-1, -1);
             } else {
@@ -45,16 +76,24 @@ public class Main {
      */
     private static void executeGame(Reversi field) {
         while (!field.hasGameEnded()) {
-            ((Game) field).printField();
+            ((Game) field).printFrame();
             field.printPossibleMoves();
             if (((Game) field).getGameMode() == Field.GameMode.PLAYER_VS_COMPUTER && field.getTurn()
                     || ((Game) field).getGameMode() == Field.GameMode.PLAYER_VS_PLAYER) {
+                ((Game) field).ponder();
                 var point = getPoint();
                 if (point != null) {
                     if (point.x() == 0 && point.y() == 0) {
                         field.cancelMove();
                         continue;
+                    } else if (point.x() == 0 && point.y() == -1) {
+                        field.redoMove();
+                        continue;
+                    } else if (point.x() == -2) {
+                        goToMove(field, point.y());
+                        continue;
                     } else if (point.x() == -1 && point.y() == -1) {
+                        ((Game) field).stopPondering();
                         break;
                     }
                     field.move(point);
@@ -63,6 +102,22 @@ public class Main {
                 field.move();
             }
         }
+        if (field.hasGameEnded()) {
+            ((Game) field).printField();
+        }
+    }
+
+    /**
+     * Go to the move of the game history (if there is such move)
+     * @param field game field (reversi)
+     * @param ply ply of the history
+     */
+    private static void goToMove(Reversi field, int ply) {
+        if (ply > field.getHistory().getLastPly()) {
+            System.out.println("There are only " + field.getHistory().getLastPly() + " moves!");
+        } else {
+            field.goToMove(ply);
+        }
     }
 
     /**
@@ -100,6 +155,76 @@ public class Main {
                 ((Game) field).printResults();
             }
         });
+        mainMenu.addMenu(new MenuTemplate("Show the game history") {
+            @Override
+            public void run() {
+                System.out.println("Moves: " + field.getHistory());
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Go to the move") {
+            @Override
+            public void run() {
+                GameHistory history = field.getHistory();
+                Menu historyMenu = new Menu("", false);
+                for (int ply = 0; ply <= history.getLastPly(); ply++) {
+                    int move = history.getMove(ply);
+                    int historyPly = ply;
+                    historyMenu.addMenu(new MenuTemplate(ply == 0 ? "First position"
+                            : "Move " + ply + ": " + (move == GameHistory.PASS ? "pass"
+                            : BitBoard.toPoint(move).x() + " " + BitBoard.toPoint(move).y())) {
+                        @Override
+                        public void run() {
+                            goToMove(field, historyPly);
+                        }
+                    });
+                }
+                historyMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Redo the move") {
+            @Override
+            public void run() {
+                field.redoMove();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Show engine statistics") {
+            @Override
+            public void run() {
+                System.out.println(isStatisticsEnabled ? statistics : "Engine statistics are turned off");
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Run perft from the current position") {
+            @Override
+            public void run() {
+                Menu perftMenu = new Menu("", false);
+                for (int depth = 1; depth <= 12; depth++) {
+                    int perftDepth = depth;
+                    perftMenu.addMenu(new MenuTemplate("Depth " + depth) {
+                        @Override
+                        public void run() {
+                            Perft.run(field.getPosition(), perftDepth,
+                                    Runtime.getRuntime().availableProcessors(), true);
+                        }
+                    });
+                }
+                perftMenu.run();
+            }
+        });
+    }
+
+    /**
+     * Adding option of the number of search threads
+     * @param menu menu to connect option
+     * @param field game field
+     * @param threads number of threads
+     */
+    private static void addThreadsMenu(Menu menu, Game field, int threads) {
+        menu.addMenu(new MenuTemplate("Search with " + threads + (threads == 1 ? " thread" : " threads")) {
+            @Override
+            public void run() {
+                field.setThreads(threads);
+            }
+        });
     }
 
     /**
@@ -149,9 +274,293 @@ public class Main {
                         field.setDifficultyLevel(Field.DifficultyLevel.ADVANCED);
                     }
                 });
+                difficultyLevelMenu.addMenu(new MenuTemplate("Expert (search to the fixed depth)") {
+                    @Override
+                    public void run() {
+                        field.setDifficultyLevel(Field.DifficultyLevel.EXPERT);
+                    }
+                });
+                difficultyLevelMenu.addMenu(new MenuTemplate("Master (search limited by time)") {
+                    @Override
+                    public void run() {
+                        field.setDifficultyLevel(Field.DifficultyLevel.MASTER);
+                    }
+                });
+                difficultyLevelMenu.addMenu(new MenuTemplate("MCTS (Monte Carlo tree search limited by time)") {
+                    @Override
+                    public void run() {
+                        field.setDifficultyLevel(Field.DifficultyLevel.MCTS);
+                    }
+                });
+                int processors = Runtime.getRuntime().availableProcessors();
+                for (int threads = 1; threads <= processors; threads *= 2) {
+                    addThreadsMenu(difficultyLevelMenu, field, threads);
+                }
+                if (Integer.bitCount(processors) != 1) {
+                    addThreadsMenu(difficultyLevelMenu, field, processors);
+                }
                 difficultyLevelMenu.run();
             }
         });
+        mainMenu.addMenu(new MenuTemplate("Choose the search depth (expert)") {
+            @Override
+            public void run() {
+                Menu searchDepthMenu = new Menu("", false);
+                for (int depth : new int[] {4, 6, 8, 10, 12}) {
+                    searchDepthMenu.addMenu(new MenuTemplate(depth + " plies") {
+                        @Override
+                        public void run() {
+                            field.setSearchDepth(depth);
+                        }
+                    });
+                }
+                searchDepthMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the search time (master, mcts)") {
+            @Override
+            public void run() {
+                Menu searchTimeMenu = new Menu("", false);
+                for (long millis : new long[] {500, 1000, 3000, 5000, 10000}) {
+                    searchTimeMenu.addMenu(new MenuTemplate(millis / 1000.0 + " seconds per move") {
+                        @Override
+                        public void run() {
+                            field.setSearchTime(millis);
+                        }
+                    });
+                }
+                searchTimeMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the MCTS tree size") {
+            @Override
+            public void run() {
+                Menu treeSizeMenu = new Menu("", false);
+                for (int megabytes : new int[] {16, 64, 256, 1024}) {
+                    treeSizeMenu.addMenu(new MenuTemplate(megabytes + " MB") {
+                        @Override
+                        public void run() {
+                            field.setTreeSize(megabytes);
+                        }
+                    });
+                }
+                treeSizeMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the evaluation") {
+            @Override
+            public void run() {
+                Menu evaluationMenu = new Menu("", false);
+                evaluationMenu.addMenu(new MenuTemplate("Location values of the cells") {
+                    @Override
+                    public void run() {
+                        field.setEvaluator(null);
+                    }
+                });
+                evaluationMenu.addMenu(new MenuTemplate("Patterns (weights from "
+                        + PatternEvaluator.DEFAULT_PATH + " or default weights)") {
+                    @Override
+                    public void run() {
+                        field.setEvaluator(loadPatternEvaluator());
+                    }
+                });
+                evaluationMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the endgame solver threshold") {
+            @Override
+            public void run() {
+                Menu endgameMenu = new Menu("", false);
+                for (int empties : new int[] {0, 10, 14, 18, 20}) {
+                    endgameMenu.addMenu(new MenuTemplate(empties == 0 ? "No endgame solver"
+                            : "Solve the last " + empties + " empty cells") {
+                        @Override
+                        public void run() {
+                            field.setEndgameThreshold(empties);
+                        }
+                    });
+                }
+                endgameMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Turn the pondering (search on your time) on/off") {
+            @Override
+            public void run() {
+                isPonderingEnabled = !isPonderingEnabled;
+                field.setPondering(isPonderingEnabled);
+                System.out.println("Pondering is turned " + (isPonderingEnabled ? "on" : "off"));
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Turn the move analysis (ranked possible moves) on/off") {
+            @Override
+            public void run() {
+                isAnalysisEnabled = !isAnalysisEnabled;
+                field.setAnalysis(isAnalysisEnabled ? MoveAnalysis.DEFAULT_VARIATIONS : 0);
+                System.out.println("Move analysis is turned " + (isAnalysisEnabled ? "on" : "off"));
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Turn the engine statistics on/off") {
+            @Override
+            public void run() {
+                isStatisticsEnabled = !isStatisticsEnabled;
+                field.setStatistics(isStatisticsEnabled ? statistics : null);
+                System.out.println("Engine statistics are turned " + (isStatisticsEnabled ? "on" : "off"));
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the time control of the AI") {
+            @Override
+            public void run() {
+                Menu timeControlMenu = new Menu("", false);
+                timeControlMenu.addMenu(new MenuTemplate("Search depth and time of the difficulty") {
+                    @Override
+                    public void run() {
+                        field.setTimeControl(null);
+                    }
+                });
+                for (String text : new String[] {"100", "1000", "60000+1000", "300000+3000"}) {
+                    TimeControl control = TimeControl.parse(text);
+                    timeControlMenu.addMenu(new MenuTemplate(control.isClock()
+                            ? control.clockMillis() / 60000 + " min + " + control.incrementMillis() / 1000 + " s per move"
+                            : control.moveMillis() + " ms per move") {
+                        @Override
+                        public void run() {
+                            field.setTimeControl(control);
+                        }
+                    });
+                }
+                timeControlMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the board rendering") {
+            @Override
+            public void run() {
+                Menu renderingMenu = new Menu("", false);
+                renderingMenu.addMenu(new MenuTemplate("Whole board every move") {
+                    @Override
+                    public void run() {
+                        field.setRenderer(null);
+                    }
+                });
+                renderingMenu.addMenu(new MenuTemplate("Whole board, up to 5 frames per second in AI games") {
+                    @Override
+                    public void run() {
+                        field.setRenderer(new BoardRenderer(System.out, false, 5, 0));
+                    }
+                });
+                renderingMenu.addMenu(new MenuTemplate("ANSI terminal: redraw the changed cells only") {
+                    @Override
+                    public void run() {
+                        field.setRenderer(new BoardRenderer(System.out, true, 0, 0));
+                    }
+                });
+                renderingMenu.addMenu(new MenuTemplate("ANSI terminal, up to 30 frames per second in AI games") {
+                    @Override
+                    public void run() {
+                        field.setRenderer(new BoardRenderer(System.out, true, 30, 0));
+                    }
+                });
+                renderingMenu.addMenu(new MenuTemplate("ANSI terminal, every 10th move of AI games") {
+                    @Override
+                    public void run() {
+                        field.setRenderer(new BoardRenderer(System.out, true, 0, 9));
+                    }
+                });
+                renderingMenu.run();
+            }
+        });
+        mainMenu.addMenu(new MenuTemplate("Choose the search cache size") {
+            @Override
+            public void run() {
+                Menu hashSizeMenu = new Menu("", false);
+                for (int megabytes : new int[] {1, 16, 64, 256}) {
+                    hashSizeMenu.addMenu(new MenuTemplate(megabytes + " MB") {
+                        @Override
+                        public void run() {
+                            field.setHashSize(megabytes);
+                        }
+                    });
+                }
+                hashSizeMenu.run();
+            }
+        });
+    }
+
+    /**
+     * Load the opening book from the working directory (if it exists)
+     * @return opening book (null if there is no book)
+     */
+    private static OpeningBook loadOpeningBook() {
+        if (!Files.exists(OpeningBook.DEFAULT_PATH)) {
+            return null;
+        }
+        try {
+            return OpeningBook.open(OpeningBook.DEFAULT_PATH);
+        } catch (IOException e) {
+            System.out.println("Opening book is not loaded: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Load the pattern evaluator with the weights from the working directory (default weights if there is no file)
+     * @return pattern evaluator
+     */
+    private static PatternEvaluator loadPatternEvaluator() {
+        if (Files.exists(PatternEvaluator.DEFAULT_PATH)) {
+            try {
+                return PatternEvaluator.load(PatternEvaluator.DEFAULT_PATH);
+            } catch (IOException e) {
+                System.out.println("Weights are not loaded: " + e.getMessage());
+            }
+        }
+        return new PatternEvaluator();
+    }
+
+    /**
+     * Publish the engine statistics as the MBean and start the periodic log (if the system property is set)
+     */
+    private static void publishStatistics() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(statistics,
+                    new ObjectName(EngineStatistics.OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.println("Engine statistics are not published: " + e.getMessage());
+        }
+        long seconds = Long.getLong(STATISTICS_LOG_PROPERTY, 0);
+        if (seconds > 0) {
+            statistics.startLogging(seconds * 1000);
+        }
+    }
+
+    /**
+     * Record the finished games to the records file and take the best scores from the earlier records
+     * @param field game field
+     */
+    private static void recordGames(Field field) {
+        try {
+            if (Files.exists(GameRecord.DEFAULT_PATH)) {
+                int maxBlack = 0;
+                int maxWhite = 0;
+                try (GameRecordReader reader = new GameRecordReader(GameRecord.DEFAULT_PATH)) {
+                    for (GameRecord record : reader) {
+                        maxBlack = Math.max(maxBlack, record.black());
+                        maxWhite = Math.max(maxWhite, record.white());
+                    }
+                }
+                field.setBestScores(maxBlack, maxWhite);
+            }
+            GameRecordWriter writer = new GameRecordWriter(GameRecord.DEFAULT_PATH);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    System.out.println("Games are not recorded: " + e.getMessage());
+                }
+            }));
+            field.addListener(new GameRecorder(field, writer));
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Games are not recorded: " + e.getMessage());
+        }
     }
 
     /**
@@ -160,10 +569,19 @@ public class Main {
      */
     public static void main(String[] args) {
         Field field = new Field();
+        field.addListener(new ConsoleRenderer());
+        field.setOpeningBook(loadOpeningBook());
+        field.setStatistics(isStatisticsEnabled ? statistics : null);
+        recordGames(field);
+        publishStatistics();
+        if (Files.exists(PatternEvaluator.DEFAULT_PATH)) {
+            field.setEvaluator(loadPatternEvaluator());
+        }
         System.out.println("Welcome to reversi game!\n");
         Menu mainMenu = new Menu("\nSee you again, have a nice day!", true);
         createReversiMenu(mainMenu, field);
         setupReversiSettings(mainMenu, field);
         mainMenu.run();
+        field.setRenderer(null);
     }
 }
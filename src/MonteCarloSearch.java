@@ -0,0 +1,417 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Monte Carlo tree search (UCT) with random playouts on the bitboards
+ * The search is root-parallel: every thread grows its own tree from the same root,
+ * visits of the root moves are summed, so the threads share nothing during the search.
+ * Nodes live in the preallocated pool of every thread (parallel arrays), the pool is reused by all moves
+ * of the game; when it is full, the trees stop growing and the playouts go on from the leaves.
+ */
+public class MonteCarloSearch {
+    /** Default memory budget of the trees (in megabytes) */
+    public static final int DEFAULT_TREE_SIZE = 64;
+
+    /** Size of one node in bytes (visits, wins, first child, number of children, move) */
+    private static final int NODE_BYTES = 14;
+
+    /** Exploration constant of UCT */
+    private static final double EXPLORATION = 1.0;
+
+    /** Number of playouts between time checks (must be power of two) */
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    /** First child of the node which is not expanded yet */
+    private static final int NOT_EXPANDED = -1;
+
+    /** Move of the pass */
+    private static final byte PASS = -1;
+
+    /** Time budget for the move in milliseconds */
+    private long timeMillis = 1000;
+
+    /** Memory budget of all the trees in megabytes */
+    private int treeSize = DEFAULT_TREE_SIZE;
+
+    /** Number of search threads */
+    private int threads = 1;
+
+    /** Pool of the helper threads (null if the search uses one thread) */
+    private ExecutorService helpers;
+
+    /** Search threads state (index 0 = main thread), created on the first search */
+    private Worker[] workers;
+
+    /** Time to stop the search (in nanoseconds) */
+    private long deadline;
+
+    /** Number of playouts of the last search (by all threads) */
+    private long playouts;
+
+    /** Duration of the last search in nanoseconds */
+    private long searchNanos;
+
+    /** Win rate of the best move of the last search for the player to move (0..1) */
+    private double bestWinRate;
+
+    /**
+     * Set time budget for the move
+     * @param timeMillis time in milliseconds
+     */
+    public void setTimeMillis(long timeMillis) {
+        this.timeMillis = Math.max(1, timeMillis);
+    }
+
+    /**
+     * Set memory budget of the trees (the trees are allocated on the next search)
+     * @param megabytes memory budget of all the threads
+     */
+    public void setTreeSize(int megabytes) {
+        if (megabytes != treeSize) {
+            treeSize = Math.max(1, megabytes);
+            workers = null;
+        }
+    }
+
+    /**
+     * Set number of search threads
+     * @param threads number of threads
+     */
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == this.threads) {
+            return;
+        }
+        if (helpers != null) {
+            helpers.shutdownNow();
+            helpers = null;
+        }
+        if (threads > 1) {
+            helpers = Executors.newFixedThreadPool(threads - 1, task -> {
+                Thread thread = new Thread(task, "mcts-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.threads = threads;
+        workers = null;
+    }
+
+    /**
+     * Get number of playouts of the last search
+     * @return number of playouts
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Get duration of the last search
+     * @return duration in nanoseconds
+     */
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * Get win rate of the best move of the last search
+     * @return win rate for the player to move (draw = half of win)
+     */
+    public double getBestWinRate() {
+        return bestWinRate;
+    }
+
+    /**
+     * Find the best move for the side to move (the most visited root move)
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     * @return square of the best move (-1 if player has to pass)
+     */
+    public int findMove(long black, long white, boolean isBlackGo) {
+        long start = System.nanoTime();
+        long player = isBlackGo ? black : white;
+        long opponent = isBlackGo ? white : black;
+        playouts = 0;
+        searchNanos = 0;
+        bestWinRate = 0;
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0) {
+            return -1;
+        }
+        if (Long.bitCount(moves) == 1) {
+            return Long.numberOfTrailingZeros(moves);
+        }
+        if (workers == null) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) treeSize * 1024 * 1024 / NODE_BYTES / threads);
+            workers = new Worker[threads];
+            for (int id = 0; id < threads; id++) {
+                workers[id] = new Worker(id, Math.max(BitBoard.SQUARES + 1, capacity));
+            }
+        }
+        deadline = start + timeMillis * 1_000_000;
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int id = 1; id < threads; id++) {
+            Worker helper = workers[id];
+            futures.add(helpers.submit(() -> helper.search(player, opponent)));
+        }
+        workers[0].search(player, opponent);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        long[] visits = new long[BitBoard.SQUARES];
+        long[] wins = new long[BitBoard.SQUARES];
+        for (Worker worker : workers) {
+            playouts += worker.playouts;
+            worker.addRootStatistics(visits, wins);
+        }
+        int bestMove = -1;
+        for (long rest = moves; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            if (bestMove < 0 || visits[square] > visits[bestMove]) {
+                bestMove = square;
+            }
+        }
+        bestWinRate = visits[bestMove] == 0 ? 0 : wins[bestMove] / (2.0 * visits[bestMove]);
+        searchNanos = System.nanoTime() - start;
+        return bestMove;
+    }
+
+    /**
+     * Search thread state (its own tree and random numbers)
+     */
+    private final class Worker {
+        /** Number of visits of the nodes */
+        private final int[] visits;
+
+        /** Sum of the results of the nodes for the player who made the move to the node (win = 2, draw = 1) */
+        private final int[] wins;
+
+        /** Index of the first child of the nodes (children are stored together), NOT_EXPANDED if not expanded */
+        private final int[] firstChild;
+
+        /** Number of children of the nodes (0 for the expanded node = game over) */
+        private final byte[] childCount;
+
+        /** Move to the nodes (square or PASS) */
+        private final byte[] move;
+
+        /** Number of used nodes */
+        private int size;
+
+        /** Path from the root to the current node */
+        private final int[] path = new int[SearchBoard.MAX_PLY];
+
+        /** Random numbers of the playouts */
+        private final SplittableRandom random;
+
+        /** Number of playouts of the last search */
+        private long playouts;
+
+        /**
+         * Constructor of the search thread
+         * @param id number of the thread
+         * @param capacity max number of the nodes
+         */
+        private Worker(int id, int capacity) {
+            visits = new int[capacity];
+            wins = new int[capacity];
+            firstChild = new int[capacity];
+            childCount = new byte[capacity];
+            move = new byte[capacity];
+            random = new SplittableRandom(id * 0x9E3779B97F4A7C15L + 1);
+        }
+
+        /**
+         * Grow the tree from the root until the time is over
+         * @param rootPlayer disks of the player to move at the root
+         * @param rootOpponent disks of the opponent at the root
+         */
+        private void search(long rootPlayer, long rootOpponent) {
+            size = 1;
+            visits[0] = 0;
+            wins[0] = 0;
+            firstChild[0] = NOT_EXPANDED;
+            playouts = 0;
+            do {
+                for (int i = 0; i < TIME_CHECK_INTERVAL; i++) {
+                    iterate(rootPlayer, rootOpponent);
+                }
+                playouts += TIME_CHECK_INTERVAL;
+            } while (System.nanoTime() < deadline && visits[0] < Integer.MAX_VALUE / 2);
+        }
+
+        /**
+         * One iteration: selection, expansion, playout and backpropagation
+         * @param player disks of the player to move at the root
+         * @param opponent disks of the opponent at the root
+         */
+        private void iterate(long player, long opponent) {
+            int node = 0;
+            int depth = 0;
+            path[depth++] = node;
+            while (firstChild[node] != NOT_EXPANDED && childCount[node] != 0) {
+                node = select(node);
+                path[depth++] = node;
+                int square = move[node];
+                if (square != PASS) {
+                    long flips = BitBoard.flips(player, opponent, square);
+                    long next = opponent & ~flips;
+                    opponent = player | flips | (1L << square);
+                    player = next;
+                } else {
+                    long next = opponent;
+                    opponent = player;
+                    player = next;
+                }
+            }
+            if (firstChild[node] == NOT_EXPANDED && (visits[node] > 0 || node == 0) && expand(node, player, opponent)
+                    && childCount[node] != 0) {
+                node = firstChild[node] + random.nextInt(childCount[node]);
+                path[depth++] = node;
+                int square = move[node];
+                if (square != PASS) {
+                    long flips = BitBoard.flips(player, opponent, square);
+                    long next = opponent & ~flips;
+                    opponent = player | flips | (1L << square);
+                    player = next;
+                } else {
+                    long next = opponent;
+                    opponent = player;
+                    player = next;
+                }
+            }
+            int result = playout(player, opponent);
+            for (int i = depth - 1; i >= 0; i--) {
+                result = 2 - result;
+                visits[path[i]]++;
+                wins[path[i]] += result;
+            }
+        }
+
+        /**
+         * Choose the child of the node by UCT (not visited children first)
+         * @param node expanded node
+         * @return chosen child
+         */
+        private int select(int node) {
+            int first = firstChild[node];
+            int end = first + childCount[node];
+            double logVisits = Math.log(visits[node]);
+            int best = first;
+            double bestValue = -1;
+            for (int child = first; child < end; child++) {
+                if (visits[child] == 0) {
+                    return child;
+                }
+                double value = wins[child] / (2.0 * visits[child])
+                        + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Create children of the node (one pass child if the player has no moves)
+         * @param node node to expand
+         * @param player disks of the player to move
+         * @param opponent disks of the opponent
+         * @return true if the node is expanded (false if the pool is full)
+         */
+        private boolean expand(int node, long player, long opponent) {
+            long moves = BitBoard.legalMoves(player, opponent);
+            int count = moves != 0 ? Long.bitCount(moves) : BitBoard.legalMoves(opponent, player) != 0 ? 1 : 0;
+            if (size + count > visits.length) {
+                return false;
+            }
+            firstChild[node] = size;
+            childCount[node] = (byte) count;
+            if (moves == 0 && count == 1) {
+                initialize(size++, PASS);
+            }
+            for (; moves != 0; moves &= moves - 1) {
+                initialize(size++, Long.numberOfTrailingZeros(moves));
+            }
+            return true;
+        }
+
+        /**
+         * Initialize the new node
+         * @param node index of the node
+         * @param square move to the node
+         */
+        private void initialize(int node, int square) {
+            visits[node] = 0;
+            wins[node] = 0;
+            firstChild[node] = NOT_EXPANDED;
+            childCount[node] = 0;
+            move[node] = (byte) square;
+        }
+
+        /**
+         * Play random moves to the end of the game
+         * @param player disks of the player to move
+         * @param opponent disks of the opponent
+         * @return result for the player to move (win = 2, draw = 1, loss = 0)
+         */
+        private int playout(long player, long opponent) {
+            boolean isSwapped = false;
+            boolean isPassed = false;
+            while (true) {
+                long moves = BitBoard.legalMoves(player, opponent);
+                if (moves == 0) {
+                    if (isPassed) {
+                        break;
+                    }
+                    isPassed = true;
+                } else {
+                    isPassed = false;
+                    for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+                        moves &= moves - 1;
+                    }
+                    int square = Long.numberOfTrailingZeros(moves);
+                    long flips = BitBoard.flips(player, opponent, square);
+                    player |= flips | (1L << square);
+                    opponent &= ~flips;
+                }
+                long next = opponent;
+                opponent = player;
+                player = next;
+                isSwapped = !isSwapped;
+            }
+            int difference = Long.bitCount(player) - Long.bitCount(opponent);
+            int result = difference > 0 ? 2 : difference < 0 ? 0 : 1;
+            return isSwapped ? 2 - result : result;
+        }
+
+        /**
+         * Add visits and wins of the root moves to the totals
+         * @param totalVisits visits by squares of the root moves
+         * @param totalWins wins by squares of the root moves
+         */
+        private void addRootStatistics(long[] totalVisits, long[] totalWins) {
+            if (firstChild[0] == NOT_EXPANDED) {
+                return;
+            }
+            for (int child = firstChild[0]; child < firstChild[0] + childCount[0]; child++) {
+                if (move[child] != PASS) {
+                    totalVisits[move[child]] += visits[child];
+                    totalWins[move[child]] += wins[child];
+                }
+            }
+        }
+    }
+}
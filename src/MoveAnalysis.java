@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Analysis of all possible moves: every move gets its own search score, the best ones get the principal variation
+ * Depths go one by one; at every depth the root moves are searched in parallel (every thread has its own search
+ * with its own board copy, the transposition table is shared, the best moves of the previous depth go first).
+ * Every finished move is published to the listener at once, so the ranking is shown while it improves
+ * and the time budget stops the analysis with the results of the last finished searches.
+ */
+public class MoveAnalysis {
+    /** Default number of the best moves shown with the principal variations */
+    public static final int DEFAULT_VARIATIONS = 3;
+
+    /** Max number of plies of the principal variation */
+    private static final int MAX_VARIATION_LENGTH = 12;
+
+    /**
+     * Analysed move
+     * @param square square of the move
+     * @param score score of the move for the side to move (in hundredths of disks)
+     * @param depth depth of the search of the move (0 = not searched yet)
+     * @param variation principal variation from the move (empty if not shown)
+     */
+    public record MoveScore(int square, int score, int depth, int[] variation) {
+        /**
+         * Override toString method
+         * @return move coordinates, score in disks, depth and the principal variation
+         */
+        @Override
+        public String toString() {
+            Point point = BitBoard.toPoint(square);
+            StringBuilder line = new StringBuilder(point.x() + " " + point.y());
+            if (depth == 0) {
+                return line.append(": not searched").toString();
+            }
+            line.append(String.format(": %+.2f (depth %d)", (double) Search.diskScore(score) / Search.SCORE_SCALE,
+                    depth));
+            for (int i = 0; i < variation.length; i++) {
+                line.append(i == 0 ? " " : ", ");
+                line.append(variation[i] == SearchBoard.PASS ? "pass" : BitBoard.toPoint(variation[i]).x() + " "
+                        + BitBoard.toPoint(variation[i]).y());
+            }
+            return line.toString();
+        }
+    }
+
+    /** Order of the ranking: searched moves first, then the best score, then the deeper search */
+    private static final Comparator<MoveScore> RANKING = Comparator.comparing((MoveScore move) -> move.depth() == 0)
+            .thenComparing(Comparator.comparingInt(MoveScore::score).reversed())
+            .thenComparing(Comparator.comparingInt(MoveScore::depth).reversed());
+
+    /** Pool of the analysis threads */
+    private final ExecutorService pool;
+
+    /** Search engines of the threads */
+    private final Search[] searches;
+
+    /** Search engines which are free to take */
+    private final BlockingQueue<Search> idle;
+
+    /** Transposition table shared by the searches */
+    private final TranspositionTable table;
+
+    /** Flag if the analysis has to stop */
+    private volatile boolean isStopped;
+
+    /**
+     * Constructor of the analysis
+     * @param threads number of the analysis threads
+     * @param hashSize memory budget of the shared search cache (in megabytes)
+     */
+    public MoveAnalysis(int threads, int hashSize) {
+        threads = Math.max(1, threads);
+        pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        table = new TranspositionTable(hashSize);
+        searches = new Search[threads];
+        idle = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table);
+            idle.add(searches[i]);
+        }
+    }
+
+    /**
+     * Set static evaluation of the analysis (the search cache is cleared)
+     * @param evaluator evaluator (null = location values and mobility)
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        for (Search search : searches) {
+            search.setEvaluator(evaluator);
+        }
+    }
+
+    /**
+     * Analyse all possible moves of the position (blocks until the depth or the time is over, or until stop)
+     * @param position position to analyse
+     * @param maxDepth max depth of the searches (in plies)
+     * @param timeMillis time budget in milliseconds (0 = no limit)
+     * @param variations number of the best moves with the principal variations
+     * @param listener listener of the ranking, called from the analysis threads after every searched move
+     *                 (null = only the result)
+     * @return ranking of the moves, the best first (empty if there is no possible moves)
+     */
+    public List<MoveScore> analyze(Position position, int maxDepth, long timeMillis, int variations,
+                                   Consumer<List<MoveScore>> listener) {
+        long moves = BitBoard.legalMoves(position.player(), position.opponent());
+        MoveScore[] scores = new MoveScore[Long.bitCount(moves)];
+        for (int i = 0; moves != 0; moves &= moves - 1) {
+            scores[i++] = new MoveScore(Long.numberOfTrailingZeros(moves), 0, 0, new int[0]);
+        }
+        isStopped = false;
+        for (Search search : searches) {
+            search.resume();
+        }
+        table.newSearch();
+        long deadline = timeMillis > 0 ? System.nanoTime() + timeMillis * 1_000_000 : 0;
+        int depthLimit = Math.min(Math.max(1, maxDepth), Long.bitCount(~(position.black() | position.white())));
+        for (int depth = 1; depth <= depthLimit && !isStopped; depth++) {
+            MoveScore[] order = ranking(scores, 0).toArray(new MoveScore[0]);
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (MoveScore move : order) {
+                int searchDepth = depth;
+                futures.add(pool.submit(() -> searchMove(position, move.square(), searchDepth, deadline, variations,
+                        scores, listener)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            if (deadline != 0 && System.nanoTime() > deadline) {
+                break;
+            }
+        }
+        synchronized (scores) {
+            return ranking(scores, variations);
+        }
+    }
+
+    /**
+     * Search one move and publish the new ranking (on the analysis thread)
+     * @param position position to analyse
+     * @param square square of the move
+     * @param depth depth of the search (in plies)
+     * @param deadline time to stop the search (in nanoseconds, 0 = no limit)
+     * @param variations number of the best moves with the principal variations
+     * @param scores scores of the moves (shared by the threads)
+     * @param listener listener of the ranking (null = no listener)
+     */
+    private void searchMove(Position position, int square, int depth, long deadline, int variations,
+                            MoveScore[] scores, Consumer<List<MoveScore>> listener) {
+        long remaining = deadline == 0 ? 0 : (deadline - System.nanoTime()) / 1_000_000;
+        if (isStopped || deadline != 0 && remaining <= 0) {
+            return;
+        }
+        Search search;
+        try {
+            search = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            search.setTimeMillis(remaining);
+            int score = search.searchMove(position.black(), position.white(), position.isBlackGo(), square, depth);
+            if (search.getCompletedDepth() != depth) {
+                return;
+            }
+            int[] variation = search.principalVariation(position.black(), position.white(), position.isBlackGo(),
+                    square, Math.min(depth, MAX_VARIATION_LENGTH));
+            synchronized (scores) {
+                for (int i = 0; i < scores.length; i++) {
+                    if (scores[i].square() == square) {
+                        scores[i] = new MoveScore(square, score, depth, variation);
+                    }
+                }
+                if (listener != null) {
+                    listener.accept(ranking(scores, variations));
+                }
+            }
+        } finally {
+            idle.add(search);
+        }
+    }
+
+    /**
+     * Get the ranking of the moves
+     * @param scores scores of the moves
+     * @param variations number of the best moves which keep the principal variations
+     * @return moves sorted by the score, the best first
+     */
+    private static List<MoveScore> ranking(MoveScore[] scores, int variations) {
+        MoveScore[] ranking = Arrays.copyOf(scores, scores.length);
+        Arrays.sort(ranking, RANKING);
+        for (int i = variations; i < ranking.length; i++) {
+            MoveScore move = ranking[i];
+            ranking[i] = new MoveScore(move.square(), move.score(), move.depth(), new int[0]);
+        }
+        return List.of(ranking);
+    }
+
+    /**
+     * Stop the running analysis (may be called from another thread)
+     */
+    public void stop() {
+        isStopped = true;
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * Stop the analysis threads
+     */
+    public void close() {
+        stop();
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+/**
+ * Move ordering of the alpha-beta search (one instance per search thread)
+ * Moves go in the order: transposition table move, killer moves of the ply, then by the sum of
+ * the static square priority, the history of the cutoffs and (at high depths) the opponent mobility after
+ * the move (the fewer replies, the earlier). Counts the cutoffs to measure the ordering quality.
+ */
+final class MoveOrdering {
+    /** Static priority of the squares (corners first, X and C squares last) */
+    private static final int[] SQUARE_PRIORITY = {
+             8,  0,  4,  3,  3,  4,  0,  8,
+             0, -4,  1,  1,  1,  1, -4,  0,
+             4,  1,  2,  2,  2,  2,  1,  4,
+             3,  1,  2,  0,  0,  2,  1,  3,
+             3,  1,  2,  0,  0,  2,  1,  3,
+             4,  1,  2,  2,  2,  2,  1,  4,
+             0, -4,  1,  1,  1,  1, -4,  0,
+             8,  0,  4,  3,  3,  4,  0,  8
+    };
+
+    /** Weight of the square priority */
+    private static final int PRIORITY_WEIGHT = 256;
+
+    /** Weight of one opponent reply (at high depths) */
+    private static final int MOBILITY_WEIGHT = 512;
+
+    /** Least remaining depth for the mobility ordering */
+    private static final int MOBILITY_DEPTH = 4;
+
+    /** History value which halves all the history (to keep it below the killers) */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    /** Bonus of the killer moves */
+    private static final int KILLER_BONUS = 1 << 24;
+
+    /** Bonus of the transposition table move */
+    private static final int HASH_MOVE_BONUS = 1 << 28;
+
+    /** Number of killer moves of one ply */
+    private static final int KILLERS = 2;
+
+    /** History of the cutoffs by the side (0 = black) and the square */
+    private final int[][] history = new int[2][BitBoard.SQUARES];
+
+    /** Killer moves by the ply (KILLERS cells for every ply) */
+    private final int[] killers = new int[SearchBoard.MAX_PLY * KILLERS];
+
+    /** Ordering keys of the current moves */
+    private final int[] keys = new int[SearchBoard.MAX_MOVES];
+
+    /** Flag if the heuristics are used (otherwise only the transposition table move goes first) */
+    private boolean isEnabled = true;
+
+    /** Number of beta cutoffs */
+    private long cutoffs;
+
+    /** Number of beta cutoffs by the first move */
+    private long firstMoveCutoffs;
+
+    /**
+     * Constructor of the move ordering
+     */
+    MoveOrdering() {
+        Arrays.fill(killers, -1);
+    }
+
+    /**
+     * Enable or disable the heuristics
+     * @param isEnabled flag if the heuristics are used
+     */
+    void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    /**
+     * Prepare to the new search: forget the killers, age the history and reset the counters
+     */
+    void newSearch() {
+        Arrays.fill(killers, -1);
+        for (int[] side : history) {
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                side[square] >>= 1;
+            }
+        }
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Order the generated moves of the current ply of the board
+     * @param board board with the generated moves
+     * @param count number of the moves
+     * @param depth remaining depth
+     * @param hashMove move of the transposition table (-1 if there is no move)
+     */
+    void order(SearchBoard board, int count, int depth, int hashMove) {
+        if (!isEnabled) {
+            for (int i = 1; i < count && hashMove >= 0; i++) {
+                if (board.move(i) == hashMove) {
+                    board.swapMoves(0, i);
+                    break;
+                }
+            }
+            return;
+        }
+        int[] sideHistory = history[board.isBlack() ? 0 : 1];
+        int killer = board.ply() * KILLERS;
+        long player = board.player();
+        long opponent = board.opponent();
+        for (int i = 0; i < count; i++) {
+            int square = board.move(i);
+            int key;
+            if (square == hashMove) {
+                key = HASH_MOVE_BONUS;
+            } else if (square == killers[killer] || square == killers[killer + 1]) {
+                key = KILLER_BONUS + (square == killers[killer] ? 1 : 0);
+            } else {
+                key = SQUARE_PRIORITY[square] * PRIORITY_WEIGHT + sideHistory[square];
+                if (depth >= MOBILITY_DEPTH) {
+                    long flips = BitBoard.flips(player, opponent, square);
+                    key -= MOBILITY_WEIGHT * Long.bitCount(
+                            BitBoard.legalMoves(opponent & ~flips, player | flips | (1L << square)));
+                }
+            }
+            int j = i;
+            for (; j > 0 && keys[j - 1] < key; j--) {
+                keys[j] = keys[j - 1];
+                board.swapMoves(j, j - 1);
+            }
+            keys[j] = key;
+        }
+    }
+
+    /**
+     * Remember the move which caused the beta cutoff
+     * @param board board at the ply of the cutoff
+     * @param square move of the cutoff
+     * @param depth remaining depth
+     * @param index index of the move in the ordered moves
+     */
+    void cutoff(SearchBoard board, int square, int depth, int index) {
+        cutoffs++;
+        if (index == 0) {
+            firstMoveCutoffs++;
+        }
+        int killer = board.ply() * KILLERS;
+        if (killers[killer] != square) {
+            killers[killer + 1] = killers[killer];
+            killers[killer] = square;
+        }
+        int[] sideHistory = history[board.isBlack() ? 0 : 1];
+        sideHistory[square] += depth * depth;
+        if (sideHistory[square] >= HISTORY_LIMIT) {
+            for (int i = 0; i < BitBoard.SQUARES; i++) {
+                sideHistory[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Get number of beta cutoffs of the search
+     * @return number of cutoffs
+     */
+    long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Get number of beta cutoffs by the first move of the search
+     * @return number of first move cutoffs
+     */
+    long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+}
@@ -0,0 +1,216 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Opening book: best moves of the known positions in the memory-mapped binary file
+ * Positions are stored once for all 8 board symmetries (in the canonical form)
+ * and sorted, so the lookup is a binary search over the mapped file without parsing it.
+ * File format: header (magic, version, number of entries), then entries of ENTRY_SIZE bytes:
+ * player disks, opponent disks (canonical form), score (short), square of the move, search depth.
+ */
+public final class OpeningBook {
+    /** Default book file (in the working directory) */
+    public static final Path DEFAULT_PATH = Path.of("book.bin");
+
+    /** First bytes of the book file ("RVBK") */
+    private static final int MAGIC = 0x5256424B;
+
+    /** Version of the file format */
+    private static final int VERSION = 1;
+
+    /** Size of the file header in bytes */
+    private static final int HEADER_SIZE = 12;
+
+    /** Size of the entry in bytes */
+    private static final int ENTRY_SIZE = 20;
+
+    /** Number of the board symmetries */
+    public static final int SYMMETRIES = 8;
+
+    /**
+     * Position of the book with its best move
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param square square of the best move
+     * @param score score of the move for the player to move (in hundredths of disks)
+     * @param depth depth of the search which found the move
+     */
+    public record Entry(long player, long opponent, int square, int score, int depth) {}
+
+    /** Mapped book file */
+    private final MappedByteBuffer buffer;
+
+    /** Number of the entries */
+    private final int size;
+
+    /**
+     * Constructor of the book
+     * @param buffer mapped book file
+     * @param size number of the entries
+     */
+    private OpeningBook(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Map the book file into memory
+     * @param path path to the book file
+     * @return opening book
+     * @throws IOException if the file can not be read or has wrong format
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Wrong opening book format: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int size = buffer.getInt(8);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || size < 0
+                    || length != HEADER_SIZE + (long) size * ENTRY_SIZE) {
+                throw new IOException("Wrong opening book format: " + path);
+            }
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * Write the book file (entries are converted to the canonical form and sorted)
+     * @param path path to the book file (replaced atomically)
+     * @param entries positions with their best moves
+     */
+    public static void write(Path path, Collection<Entry> entries) throws IOException {
+        List<Entry> canonical = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            canonical.add(canonical(entry));
+        }
+        canonical.sort((a, b) -> compare(a.player(), a.opponent(), b.player(), b.opponent()));
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + canonical.size() * ENTRY_SIZE);
+        data.putInt(MAGIC).putInt(VERSION).putInt(canonical.size());
+        for (Entry entry : canonical) {
+            data.putLong(entry.player()).putLong(entry.opponent()).putShort((short) entry.score())
+                    .put((byte) entry.square()).put((byte) entry.depth());
+        }
+        data.flip();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Find the best move of the position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return entry with the square of the move for the given position (null if the book has no legal move for it)
+     */
+    public Entry lookup(long player, long opponent) {
+        int symmetry = canonicalSymmetry(player, opponent);
+        long canonicalPlayer = BitBoard.transform(player, symmetry);
+        long canonicalOpponent = BitBoard.transform(opponent, symmetry);
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_SIZE + middle * ENTRY_SIZE;
+            int order = compare(buffer.getLong(offset), buffer.getLong(offset + 8), canonicalPlayer, canonicalOpponent);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                int square = buffer.get(offset + 18);
+                if (square < 0 || square >= BitBoard.SQUARES) {
+                    return null;
+                }
+                long move = BitBoard.inverseTransform(1L << square, symmetry);
+                if ((BitBoard.legalMoves(player, opponent) & move) == 0) {
+                    return null;
+                }
+                return new Entry(player, opponent, Long.numberOfTrailingZeros(move),
+                        buffer.getShort(offset + 16), buffer.get(offset + 19));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all entries of the book (in the canonical form)
+     * @return entries
+     */
+    public List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int offset = HEADER_SIZE + i * ENTRY_SIZE;
+            entries.add(new Entry(buffer.getLong(offset), buffer.getLong(offset + 8), buffer.get(offset + 18),
+                    buffer.getShort(offset + 16), buffer.get(offset + 19)));
+        }
+        return entries;
+    }
+
+    /**
+     * Get number of the entries
+     * @return number of the positions in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get symmetry which converts the position to the canonical form
+     * (the form with the least player disks, then the least opponent disks)
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return number of the symmetry (see BitBoard.transform)
+     */
+    public static int canonicalSymmetry(long player, long opponent) {
+        int result = 0;
+        long bestPlayer = player;
+        long bestOpponent = opponent;
+        for (int symmetry = 1; symmetry < SYMMETRIES; symmetry++) {
+            long transformedPlayer = BitBoard.transform(player, symmetry);
+            long transformedOpponent = BitBoard.transform(opponent, symmetry);
+            if (compare(transformedPlayer, transformedOpponent, bestPlayer, bestOpponent) < 0) {
+                result = symmetry;
+                bestPlayer = transformedPlayer;
+                bestOpponent = transformedOpponent;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert the entry to the canonical form
+     * @param entry entry of the book
+     * @return entry with the canonical position and the move transformed accordingly
+     */
+    public static Entry canonical(Entry entry) {
+        int symmetry = canonicalSymmetry(entry.player(), entry.opponent());
+        return new Entry(BitBoard.transform(entry.player(), symmetry), BitBoard.transform(entry.opponent(), symmetry),
+                Long.numberOfTrailingZeros(BitBoard.transform(1L << entry.square(), symmetry)),
+                entry.score(), entry.depth());
+    }
+
+    /**
+     * Compare positions in the order of the book file
+     * @return negative, zero or positive number as the first position is less, equal or greater
+     */
+    private static int compare(long player, long opponent, long otherPlayer, long otherOpponent) {
+        int order = Long.compareUnsigned(player, otherPlayer);
+        return order != 0 ? order : Long.compareUnsigned(opponent, otherOpponent);
+    }
+}
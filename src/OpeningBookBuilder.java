@@ -0,0 +1,194 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builder of the opening book from the self-play games
+ * Every position of the first plies of a game is searched to the given depth (if the book
+ * does not know it yet), the game goes on by the best move or by a random move to explore more openings.
+ * Existing book is extended: its positions are kept unless a deeper search replaces them.
+ */
+public final class OpeningBookBuilder {
+    /**
+     * Key of the canonical position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     */
+    private record Key(long player, long opponent) {}
+
+    /** Positions of the book by the canonical keys */
+    private final Map<Key, OpeningBook.Entry> entries = new ConcurrentHashMap<>();
+
+    /** Number of plies from the start covered by the book */
+    private final int plies;
+
+    /** Search depth of the book moves */
+    private final int depth;
+
+    /** Probability of the random move in the self-play games */
+    private final double randomness;
+
+    /** Search engine of the current thread */
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    /** Number of the searched positions */
+    private final AtomicInteger searched = new AtomicInteger();
+
+    /**
+     * Constructor of the builder
+     * @param plies number of plies from the start covered by the book
+     * @param depth search depth of the book moves
+     * @param randomness probability of the random move in the self-play games
+     */
+    public OpeningBookBuilder(int plies, int depth, double randomness) {
+        this.plies = plies;
+        this.depth = depth;
+        this.randomness = randomness;
+    }
+
+    /**
+     * Add entries of the existing book
+     * @param book opening book
+     */
+    public void add(OpeningBook book) {
+        for (OpeningBook.Entry entry : book.entries()) {
+            entries.put(new Key(entry.player(), entry.opponent()), entry);
+        }
+    }
+
+    /**
+     * Find the book entry of the position (search it if the book does not know it)
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param isBlack flag if black goes
+     * @return entry in the canonical form
+     */
+    private OpeningBook.Entry analyze(long player, long opponent, boolean isBlack) {
+        int symmetry = OpeningBook.canonicalSymmetry(player, opponent);
+        Key key = new Key(BitBoard.transform(player, symmetry), BitBoard.transform(opponent, symmetry));
+        OpeningBook.Entry entry = entries.get(key);
+        if (entry != null && entry.depth() >= depth) {
+            return entry;
+        }
+        Search search = searches.get();
+        search.setMaxDepth(depth);
+        search.setTimeMillis(0);
+        int square = search.findMove(isBlack ? player : opponent, isBlack ? opponent : player, isBlack);
+        searched.incrementAndGet();
+        entry = OpeningBook.canonical(new OpeningBook.Entry(player, opponent, square,
+                Search.diskScore(search.getBestScore()), depth));
+        entries.merge(key, entry, (old, found) -> old.depth() >= found.depth() ? old : found);
+        return entry;
+    }
+
+    /**
+     * Play the first plies of one self-play game and add its positions to the book
+     * @param seed seed of the random moves
+     */
+    private void play(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SearchBoard board = new SearchBoard();
+        board.set(Position.START);
+        for (int ply = 0; ply < plies; ply++) {
+            int count = board.generateMoves();
+            if (count == 0) {
+                if (BitBoard.legalMoves(board.opponent(), board.player()) == 0) {
+                    return;
+                }
+                board.makePass();
+                continue;
+            }
+            OpeningBook.Entry entry = analyze(board.player(), board.opponent(), board.isBlack());
+            int square;
+            if (random.nextDouble() < randomness) {
+                square = board.move(random.nextInt(count));
+            } else {
+                int symmetry = OpeningBook.canonicalSymmetry(board.player(), board.opponent());
+                square = Long.numberOfTrailingZeros(BitBoard.inverseTransform(1L << entry.square(), symmetry));
+            }
+            board.make(square);
+        }
+    }
+
+    /**
+     * Play self-play games in parallel
+     * @param games number of games
+     * @param threads number of threads
+     * @param seed seed of the random moves
+     */
+    public void build(int games, int threads, long seed) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int game = 0; game < games; game++) {
+                long gameSeed = seed + game;
+                futures.add(executor.submit(() -> play(gameSeed)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Write the book file
+     * @param path path to the book file
+     */
+    public void write(Path path) throws IOException {
+        OpeningBook.write(path, entries.values());
+    }
+
+    /**
+     * Main function
+     * @param args path to the book file (extended if exists), then options
+     *             plies=N, depth=N, games=N, random=P, threads=N, seed=N
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java OpeningBookBuilder <book> [plies=12] [depth=10] [games=1000] "
+                    + "[random=0.3] [threads=N] [seed=1]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        Path path = Path.of(args[0]);
+        OpeningBookBuilder builder = new OpeningBookBuilder(
+                Integer.parseInt(options.getOrDefault("plies", "12")),
+                Integer.parseInt(options.getOrDefault("depth", "10")),
+                Double.parseDouble(options.getOrDefault("random", "0.3")));
+        if (Files.exists(path)) {
+            builder.add(OpeningBook.open(path));
+        }
+        int before = builder.entries.size();
+        long start = System.nanoTime();
+        builder.build(Integer.parseInt(options.getOrDefault("games", "1000")),
+                Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        builder.write(path);
+        System.out.printf("%d positions (%d new), %d searched, %.1f s, %.1f positions/s%n",
+                builder.entries.size(), builder.entries.size() - before, builder.searched.get(),
+                seconds, builder.searched.get() / Math.max(seconds, 1e-9));
+    }
+}
@@ -0,0 +1,354 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluator by the patterns: edges, corner 3x3 and 2x5 regions and diagonals
+ * Every pattern instance (the pattern under a board symmetry) is read as a base-3 number
+ * (0 - empty, 1 - disk of the player to move, 2 - disk of the opponent) which indexes the weight table
+ * of the pattern, so the cost of the evaluation is fixed. Mobility, potential mobility (empty cells near
+ * the opponent disks) and stable disks are added with their own weights. All weights depend on the game phase.
+ * Binary weights file: magic, version, number of phases, number of weights per phase, then the weights (ints).
+ */
+public class PatternEvaluator implements Evaluator {
+    /** Default weights file (in the working directory) */
+    public static final Path DEFAULT_PATH = Path.of("weights.bin");
+
+    /** Number of the game phases (by number of disks) */
+    public static final int PHASES = 6;
+
+    /** First bytes of the weights file ("RVWT") */
+    private static final int MAGIC = 0x52565754;
+
+    /** Version of the file format */
+    private static final int VERSION = 1;
+
+    /** Squares of the patterns in the first orientation (square = x + 8 * y, numbering from zero) */
+    private static final int[][] PATTERNS = {
+            {0, 1, 2, 3, 4, 5, 6, 7},                   // edge
+            {0, 1, 2, 8, 9, 10, 16, 17, 18},            // corner 3x3
+            {0, 1, 2, 3, 4, 8, 9, 10, 11, 12},          // corner 2x5
+            {0, 9, 18, 27, 36, 45, 54, 63},             // diagonal of 8 cells
+            {1, 10, 19, 28, 37, 46, 55},                // diagonal of 7 cells
+            {2, 11, 20, 29, 38, 47},                    // diagonal of 6 cells
+            {3, 12, 21, 30, 39},                        // diagonal of 5 cells
+            {4, 13, 22, 31}                             // diagonal of 4 cells
+    };
+
+    /** Squares of every pattern instance (distinct patterns under the 8 board symmetries) */
+    private static final int[][] INSTANCES;
+
+    /** Offsets of the weight tables of every pattern instance */
+    private static final int[] INSTANCE_OFFSETS;
+
+    /** Offsets of the weight tables of the patterns */
+    private static final int[] OFFSETS = new int[PATTERNS.length];
+
+    /** Index of the mobility weight */
+    static final int MOBILITY;
+
+    /** Index of the potential mobility weight */
+    static final int POTENTIAL_MOBILITY;
+
+    /** Index of the stable disks weight */
+    static final int STABILITY;
+
+    /** Number of weights of one phase */
+    public static final int SIZE;
+
+    /** Number of the features of the position: pattern instances, then mobility, potential mobility, stability */
+    static final int FEATURES;
+
+    /** Full lines of the board: rows, columns, diagonals and anti-diagonals */
+    private static final long[][] LINES = new long[4][];
+
+    /** Squares protected by the board side: for rows, columns, diagonals and anti-diagonals */
+    private static final long[] SIDES = {
+            0x8181818181818181L, 0xFF000000000000FFL, 0xFF818181818181FFL, 0xFF818181818181FFL
+    };
+
+    static {
+        List<int[]> instances = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        int offset = 0;
+        for (int pattern = 0; pattern < PATTERNS.length; pattern++) {
+            OFFSETS[pattern] = offset;
+            offset += power3(PATTERNS[pattern].length);
+            List<Long> masks = new ArrayList<>();
+            for (int symmetry = 0; symmetry < OpeningBook.SYMMETRIES; symmetry++) {
+                int[] squares = new int[PATTERNS[pattern].length];
+                long mask = 0;
+                for (int i = 0; i < squares.length; i++) {
+                    squares[i] = Long.numberOfTrailingZeros(BitBoard.transform(1L << PATTERNS[pattern][i], symmetry));
+                    mask |= 1L << squares[i];
+                }
+                if (!masks.contains(mask)) {
+                    masks.add(mask);
+                    instances.add(squares);
+                    patterns.add(pattern);
+                }
+            }
+        }
+        MOBILITY = offset;
+        POTENTIAL_MOBILITY = offset + 1;
+        STABILITY = offset + 2;
+        SIZE = offset + 3;
+        INSTANCES = instances.toArray(new int[0][]);
+        FEATURES = INSTANCES.length + 3;
+        INSTANCE_OFFSETS = new int[INSTANCES.length];
+        for (int i = 0; i < INSTANCES.length; i++) {
+            INSTANCE_OFFSETS[i] = OFFSETS[patterns.get(i)];
+        }
+        for (int direction = 0; direction < LINES.length; direction++) {
+            List<Long> lines = new ArrayList<>();
+            for (int start = 0; start < BitBoard.SQUARES; start++) {
+                long line = 0;
+                int x = start % 8;
+                int y = start / 8;
+                while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+                    line |= 1L << (x + 8 * y);
+                    x += direction == 1 ? 0 : direction == 3 ? -1 : 1;
+                    y += direction == 0 ? 0 : 1;
+                }
+                boolean isNew = true;
+                for (long known : lines) {
+                    if ((known & line) != 0) {
+                        isNew = false;
+                        break;
+                    }
+                }
+                if (isNew) {
+                    lines.add(line);
+                }
+            }
+            LINES[direction] = lines.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /** Weights by the phases */
+    private final int[][] weights;
+
+    /**
+     * Constructor of the evaluator with the default weights
+     * (pattern weights repeat the location values of the squares, so the evaluator plays before any tuning)
+     */
+    public PatternEvaluator() {
+        weights = new int[PHASES][SIZE];
+        int[] coverage = new int[BitBoard.SQUARES];
+        for (int[] instance : INSTANCES) {
+            for (int square : instance) {
+                coverage[square]++;
+            }
+        }
+        for (int pattern = 0; pattern < PATTERNS.length; pattern++) {
+            int[] squares = PATTERNS[pattern];
+            for (int index = 0; index < power3(squares.length); index++) {
+                double value = 0;
+                for (int i = squares.length - 1, rest = index; i >= 0; i--, rest /= 3) {
+                    int sign = rest % 3 == 1 ? 1 : rest % 3 == 2 ? -1 : 0;
+                    value += sign * (double) SquareEvaluator.SQUARE_VALUES[squares[i]] / coverage[squares[i]];
+                }
+                for (int[] phase : weights) {
+                    phase[OFFSETS[pattern] + index] = (int) Math.round(value);
+                }
+            }
+        }
+        for (int[] phase : weights) {
+            phase[MOBILITY] = SquareEvaluator.MOBILITY_VALUE;
+            phase[POTENTIAL_MOBILITY] = SquareEvaluator.MOBILITY_VALUE / 4;
+            phase[STABILITY] = Search.SCORE_SCALE / 4;
+        }
+    }
+
+    /**
+     * Constructor of the evaluator
+     * @param weights weights by the phases (PHASES arrays of SIZE weights)
+     */
+    PatternEvaluator(int[][] weights) {
+        if (weights.length != PHASES) {
+            throw new IllegalArgumentException("Wrong number of phases: " + weights.length);
+        }
+        for (int[] phase : weights) {
+            if (phase.length != SIZE) {
+                throw new IllegalArgumentException("Wrong number of weights: " + phase.length);
+            }
+        }
+        this.weights = weights;
+    }
+
+    /**
+     * Load the evaluator from the weights file
+     * @param path path to the weights file
+     * @return evaluator
+     * @throws IOException if the file can not be read or has wrong format
+     */
+    public static PatternEvaluator load(Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() != 16 + 4L * PHASES * SIZE || data.getInt() != MAGIC || data.getInt() != VERSION
+                || data.getInt() != PHASES || data.getInt() != SIZE) {
+            throw new IOException("Wrong weights file format: " + path);
+        }
+        int[][] weights = new int[PHASES][SIZE];
+        for (int[] phase : weights) {
+            data.asIntBuffer().get(phase);
+            data.position(data.position() + 4 * SIZE);
+        }
+        return new PatternEvaluator(weights);
+    }
+
+    /**
+     * Save the weights file
+     * @param path path to the weights file
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(16 + 4 * PHASES * SIZE);
+        data.putInt(MAGIC).putInt(VERSION).putInt(PHASES).putInt(SIZE);
+        for (int[] phase : weights) {
+            data.asIntBuffer().put(phase);
+            data.position(data.position() + 4 * SIZE);
+        }
+        Files.write(path, data.array());
+    }
+
+    @Override
+    public int evaluate(long player, long opponent) {
+        int[] phase = weights[phase(player, opponent)];
+        int result = 0;
+        for (int i = 0; i < INSTANCES.length; i++) {
+            int index = 0;
+            for (int square : INSTANCES[i]) {
+                index = index * 3 + (int) ((player >>> square) & 1) + 2 * (int) ((opponent >>> square) & 1);
+            }
+            result += phase[INSTANCE_OFFSETS[i] + index];
+        }
+        long empty = ~(player | opponent);
+        result += phase[MOBILITY] * (Long.bitCount(BitBoard.legalMoves(player, opponent))
+                - Long.bitCount(BitBoard.legalMoves(opponent, player)));
+        result += phase[POTENTIAL_MOBILITY] * (Long.bitCount(empty & neighbours(opponent))
+                - Long.bitCount(empty & neighbours(player)));
+        result += phase[STABILITY] * (Long.bitCount(stableDisks(player, opponent))
+                - Long.bitCount(stableDisks(opponent, player)));
+        return result;
+    }
+
+    /**
+     * Get features of the position (for the tuning): the evaluation is the sum of the weights
+     * of the phase at the indices multiplied by the values
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param indices weight indices of the features (FEATURES cells to fill)
+     * @param values values of the features (FEATURES cells to fill)
+     * @return game phase
+     */
+    static int features(long player, long opponent, int[] indices, int[] values) {
+        for (int i = 0; i < INSTANCES.length; i++) {
+            int index = 0;
+            for (int square : INSTANCES[i]) {
+                index = index * 3 + (int) ((player >>> square) & 1) + 2 * (int) ((opponent >>> square) & 1);
+            }
+            indices[i] = INSTANCE_OFFSETS[i] + index;
+            values[i] = 1;
+        }
+        long empty = ~(player | opponent);
+        int extra = INSTANCES.length;
+        indices[extra] = MOBILITY;
+        values[extra] = Long.bitCount(BitBoard.legalMoves(player, opponent))
+                - Long.bitCount(BitBoard.legalMoves(opponent, player));
+        indices[extra + 1] = POTENTIAL_MOBILITY;
+        values[extra + 1] = Long.bitCount(empty & neighbours(opponent)) - Long.bitCount(empty & neighbours(player));
+        indices[extra + 2] = STABILITY;
+        values[extra + 2] = Long.bitCount(stableDisks(player, opponent)) - Long.bitCount(stableDisks(opponent, player));
+        return phase(player, opponent);
+    }
+
+    /**
+     * Get the game phase of the position
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @return phase (0 = opening)
+     */
+    static int phase(long player, long opponent) {
+        return Math.min(PHASES - 1, (Long.bitCount(player | opponent) - 4) / 10);
+    }
+
+    /**
+     * Get the squares next to the disks
+     * @param disks disks
+     * @return squares next to the disks in any direction
+     */
+    private static long neighbours(long disks) {
+        long result = 0;
+        for (int direction = 0; direction < BitBoard.DIRECTIONS; direction++) {
+            result |= BitBoard.shift(disks, direction);
+        }
+        return result;
+    }
+
+    /**
+     * Get stable disks of the player (the disks which can not be flipped any more)
+     * A disk is stable if on every line through it the line is full, or the disk is at the board side,
+     * or the next disk of the line is stable disk of the same player.
+     * @param player disks of the player
+     * @param opponent disks of the opponent
+     * @return stable disks of the player (the subset of all stable disks)
+     */
+    static long stableDisks(long player, long opponent) {
+        long occupied = player | opponent;
+        long rows = SIDES[0] | fullLines(occupied, LINES[0]);
+        long columns = SIDES[1] | fullLines(occupied, LINES[1]);
+        long diagonals = SIDES[2] | fullLines(occupied, LINES[2]);
+        long antiDiagonals = SIDES[3] | fullLines(occupied, LINES[3]);
+        long stable = 0;
+        long previous;
+        do {
+            previous = stable;
+            stable = player
+                    & (rows | BitBoard.shift(stable, 6) | BitBoard.shift(stable, 7))
+                    & (columns | BitBoard.shift(stable, 0) | BitBoard.shift(stable, 3))
+                    & (diagonals | BitBoard.shift(stable, 1) | BitBoard.shift(stable, 5))
+                    & (antiDiagonals | BitBoard.shift(stable, 2) | BitBoard.shift(stable, 4));
+        } while (stable != previous);
+        return stable;
+    }
+
+    /**
+     * Get the full lines of the board
+     * @param occupied occupied squares
+     * @param lines lines of one direction
+     * @return squares of the full lines
+     */
+    private static long fullLines(long occupied, long[] lines) {
+        long result = 0;
+        for (long line : lines) {
+            if ((occupied & line) == line) {
+                result |= line;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get power of three
+     * @param exponent exponent
+     * @return 3 to the power of exponent
+     */
+    private static int power3(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * Get weights of the phase (for the tuning)
+     * @param phase game phase
+     * @return weights (not a copy)
+     */
+    int[] weights(int phase) {
+        return weights[phase];
+    }
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Perft (counting of the game tree leaves) to validate and measure the move generator
+ * The pass is a ply of the tree, the finished game is a leaf at any depth. The tree is walked on the bitboards
+ * or through the game (Reversi moves, passes and undo), the counts of both walks must be equal.
+ */
+public final class Perft {
+    /** Known numbers of leaves from the start position (index = depth) */
+    private static final long[] START_COUNTS = {
+            1, 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288, 24571284, 212258800, 1939886636L
+    };
+
+    /** Index of the pass in the divide results */
+    public static final int PASS = BitBoard.SQUARES;
+
+    private Perft() {
+    }
+
+    /**
+     * Count leaves of the game tree
+     * @param player disks of the player to move
+     * @param opponent disks of the opponent
+     * @param depth depth of the tree
+     * @return number of leaves
+     */
+    public static long count(long player, long opponent, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0) {
+            if (depth == 1 || BitBoard.legalMoves(opponent, player) == 0) {
+                return 1;
+            }
+            return count(opponent, player, depth - 1);
+        }
+        if (depth == 1) {
+            return Long.bitCount(moves);
+        }
+        long nodes = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            int square = Long.numberOfTrailingZeros(moves);
+            long flips = BitBoard.flips(player, opponent, square);
+            nodes += count(opponent & ~flips, player | flips | (1L << square), depth - 1);
+        }
+        return nodes;
+    }
+
+    /**
+     * Count leaves of the game tree through the game (player vs player mode, the game is left at the same ply)
+     * Every cell is tried with move(Point): the accepted moves are counted and cancelled with cancelMove(),
+     * the rejected ones leave the game unchanged. The side without possible moves passes with move().
+     * @param game game at the root position
+     * @param depth depth of the tree
+     * @return number of leaves
+     */
+    public static long count(Reversi game, int depth) {
+        if (depth == 0 || game.hasGameEnded()) {
+            return 1;
+        }
+        GameHistory history = game.getHistory();
+        int ply = history.getPly();
+        long nodes = 0;
+        boolean hasMoves = false;
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            game.move(BitBoard.toPoint(square));
+            if (history.getPly() != ply) {
+                hasMoves = true;
+                nodes += count(game, depth - 1);
+                game.cancelMove();
+            }
+        }
+        if (hasMoves || depth == 1) {
+            return hasMoves ? nodes : 1;
+        }
+        game.move();
+        nodes = count(game, depth - 1);
+        game.goToMove(ply);
+        return nodes;
+    }
+
+    /**
+     * Count leaves of the game tree for every root move through the game (player vs player mode)
+     * @param game game at the root position (left at the same ply)
+     * @param depth depth of the tree (at least 1)
+     * @return numbers of leaves by squares of the root moves (index PASS = pass, -1 = illegal move)
+     */
+    public static long[] divide(Reversi game, int depth) {
+        long[] result = new long[BitBoard.SQUARES + 1];
+        Arrays.fill(result, -1);
+        if (game.hasGameEnded()) {
+            return result;
+        }
+        GameHistory history = game.getHistory();
+        int ply = history.getPly();
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            game.move(BitBoard.toPoint(square));
+            if (history.getPly() != ply) {
+                result[square] = count(game, depth - 1);
+                game.cancelMove();
+            }
+        }
+        if (history.getPossibleMoves(ply) == 0) {
+            game.move();
+            result[PASS] = count(game, depth - 1);
+            game.goToMove(ply);
+        }
+        return result;
+    }
+
+    /**
+     * Count leaves of the game tree for every root move
+     * @param position root position
+     * @param depth depth of the tree (at least 1)
+     * @param threads number of threads (root moves are counted in parallel)
+     * @return numbers of leaves by squares of the root moves (index PASS = pass, -1 = illegal move)
+     */
+    public static long[] divide(Position position, int depth, int threads) {
+        long player = position.player();
+        long opponent = position.opponent();
+        long[] result = new long[BitBoard.SQUARES + 1];
+        Arrays.fill(result, -1);
+        long moves = BitBoard.legalMoves(player, opponent);
+        if (moves == 0) {
+            if (BitBoard.legalMoves(opponent, player) != 0) {
+                result[PASS] = count(opponent, player, depth - 1);
+            }
+            return result;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (long rest = moves; rest != 0; rest &= rest - 1) {
+                int square = Long.numberOfTrailingZeros(rest);
+                long flips = BitBoard.flips(player, opponent, square);
+                futures.add(executor.submit(() ->
+                        count(opponent & ~flips, player | flips | (1L << square), depth - 1)));
+            }
+            int i = 0;
+            for (long rest = moves; rest != 0; rest &= rest - 1) {
+                result[Long.numberOfTrailingZeros(rest)] = futures.get(i++).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return result;
+    }
+
+    /**
+     * Run perft and print the results (nodes, time, nodes per second)
+     * @param position root position
+     * @param depth depth of the tree
+     * @param threads number of threads
+     * @param isDivide flag if the numbers of leaves of every root move are printed
+     */
+    public static void run(Position position, int depth, int threads, boolean isDivide) {
+        run(position, depth, threads, isDivide, false);
+    }
+
+    /**
+     * Run perft and print the results (nodes, time, nodes per second)
+     * @param position root position
+     * @param depth depth of the tree
+     * @param threads number of threads
+     * @param isDivide flag if the numbers of leaves of every root move are printed
+     * @param isGame flag if the tree is walked through the game as well (the counts of the root moves are compared)
+     */
+    public static void run(Position position, int depth, int threads, boolean isDivide, boolean isGame) {
+        long start = System.nanoTime();
+        long nodes = 0;
+        long[] divide = null;
+        if (depth == 0 || threads <= 1 && !isDivide) {
+            nodes = count(position.player(), position.opponent(), depth);
+        } else {
+            divide = divide(position, depth, threads);
+            for (long count : divide) {
+                nodes += Math.max(0, count);
+            }
+            if (nodes == 0) {
+                nodes = 1;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (isDivide && divide != null) {
+            for (int square = 0; square <= PASS; square++) {
+                if (divide[square] >= 0) {
+                    Point point = square == PASS ? null : BitBoard.toPoint(square);
+                    System.out.println((point == null ? "pass" : point.x() + " " + point.y()) + ": " + divide[square]);
+                }
+            }
+        }
+        System.out.printf("perft(%d) = %d, %.3f s, %.0f nodes/s%n", depth, nodes, seconds, nodes / Math.max(seconds, 1e-9));
+        if (position.equals(Position.START) && depth < START_COUNTS.length && START_COUNTS[depth] != nodes) {
+            System.out.println("Wrong number of nodes! Expected: " + START_COUNTS[depth]);
+        }
+        if (isGame) {
+            runGame(position, depth, threads, nodes);
+        }
+    }
+
+    /**
+     * Run perft through the game and compare its counts with the bitboard perft
+     * @param position root position
+     * @param depth depth of the tree
+     * @param threads number of threads of the bitboard perft
+     * @param expected number of leaves counted on the bitboards
+     */
+    private static void runGame(Position position, int depth, int threads, long expected) {
+        Field field = new Field();
+        field.setGameMode(Game.GameMode.PLAYER_VS_PLAYER);
+        field.setPosition(position);
+        long start = System.nanoTime();
+        long nodes;
+        if (depth == 0) {
+            nodes = count(field, depth);
+        } else {
+            long[] divide = divide(field, depth);
+            long[] bitboard = divide(position, depth, threads);
+            nodes = 0;
+            for (int square = 0; square <= PASS; square++) {
+                nodes += Math.max(0, divide[square]);
+                if (divide[square] != bitboard[square]) {
+                    Point point = square == PASS ? null : BitBoard.toPoint(square);
+                    System.out.println("Wrong number of nodes through the game after "
+                            + (point == null ? "pass" : point.x() + " " + point.y()) + ": " + divide[square]
+                            + ", bitboards: " + bitboard[square]);
+                }
+            }
+            if (nodes == 0) {
+                nodes = 1;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("game perft(%d) = %d, %.3f s, %.0f nodes/s%n", depth, nodes, seconds,
+                nodes / Math.max(seconds, 1e-9));
+        if (nodes != expected) {
+            System.out.println("Wrong number of nodes through the game! Bitboards: " + expected);
+        }
+    }
+
+    /**
+     * Main function
+     * @param args depth, number of threads, "divide", "game" (walk through the game as well) and position
+     *             in the text format (all but depth are optional)
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java Perft <depth> [threads] [divide] [game] [position]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean isDivide = false;
+        boolean isGame = false;
+        Position position = Position.START;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("divide")) {
+                isDivide = true;
+            } else if (args[i].equals("game")) {
+                isGame = true;
+            } else if (args[i].length() == BitBoard.SQUARES && i + 1 < args.length) {
+                position = Position.parse(args[i] + " " + args[++i]);
+            } else if (args[i].length() > BitBoard.SQUARES) {
+                position = Position.parse(args[i]);
+            } else {
+                threads = Integer.parseInt(args[i]);
+            }
+        }
+        run(position, depth, threads, isDivide, isGame);
+    }
+}
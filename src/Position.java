@@ -0,0 +1,70 @@
+/**
+ * immutable position of the game
+ * Text format: 64 cells row by row from (1, 1) to (8, 8) ('X' - black, 'O' - white, '-' - empty),
+ * then space and side to move ('X' or 'O')
+ * @param black black disks
+ * @param white white disks
+ * @param isBlackGo flag if black goes
+ */
+public record Position(long black, long white, boolean isBlackGo) {
+    /** Start position of the game */
+    public static final Position START = new Position(BitBoard.START_BLACK, BitBoard.START_WHITE, true);
+
+    /**
+     * Parse position from the text format
+     * @param text position in the text format
+     * @return position
+     * @throws IllegalArgumentException if the text is not a position
+     */
+    public static Position parse(String text) {
+        text = text.strip();
+        if (text.length() != BitBoard.SQUARES + 2 || text.charAt(BitBoard.SQUARES) != ' ') {
+            throw new IllegalArgumentException("Wrong position format: " + text);
+        }
+        long black = 0;
+        long white = 0;
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            switch (text.charAt(square)) {
+                case 'X' -> black |= 1L << square;
+                case 'O' -> white |= 1L << square;
+                case '-' -> { }
+                default -> throw new IllegalArgumentException("Wrong cell at " + BitBoard.toPoint(square));
+            }
+        }
+        char side = text.charAt(BitBoard.SQUARES + 1);
+        if (side != 'X' && side != 'O') {
+            throw new IllegalArgumentException("Wrong side to move: " + side);
+        }
+        return new Position(black, white, side == 'X');
+    }
+
+    /**
+     * Get disks of the player to move
+     * @return disks
+     */
+    public long player() {
+        return isBlackGo ? black : white;
+    }
+
+    /**
+     * Get disks of the opponent
+     * @return disks
+     */
+    public long opponent() {
+        return isBlackGo ? white : black;
+    }
+
+    /**
+     * Override toString method
+     * @return position in the text format
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(BitBoard.SQUARES + 2);
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            long bit = 1L << square;
+            text.append((black & bit) != 0 ? 'X' : (white & bit) != 0 ? 'O' : '-');
+        }
+        return text.append(' ').append(isBlackGo ? 'X' : 'O').toString();
+    }
+}
@@ -14,9 +14,27 @@ public interface Reversi {
     /** Cancel last move */
     void cancelMove();
 
+    /** Repeat the last cancelled move */
+    void redoMove();
+
+    /** Go to the ply of the game history (0 = first position, the later plies are kept for redo) */
+    void goToMove(int ply);
+
+    /** Get history of the game */
+    GameHistory getHistory();
+
     /** Check if black goes */
     boolean getTurn();
 
     /** Check if there is no moves to go */
     boolean hasGameEnded();
+
+    /** Get current position of the game */
+    Position getPosition();
+
+    /** Subscribe the listener to the game events */
+    void addListener(GameListener listener);
+
+    /** Unsubscribe the listener from the game events */
+    void removeListener(GameListener listener);
 }
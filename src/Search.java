@@ -0,0 +1,755 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Class of the alpha-beta (negamax) search engine with iterative deepening and aspiration windows
+ * Several threads search the same position (Lazy SMP) sharing the transposition table,
+ * the result of the main thread is used (so the search with one thread is deterministic).
+ */
+public class Search {
+    /** Score of one disk of difference (scores are in hundredths of disks) */
+    public static final int SCORE_SCALE = 100;
+
+    /** Score added to the proven result of the finished game (greater than any static evaluation) */
+    public static final int WIN_SCORE = 100_000;
+
+    /** Max search depth (no more empty cells on the board) */
+    public static final int MAX_DEPTH = 60;
+
+    /** Default size of the transposition table in megabytes */
+    public static final int DEFAULT_HASH_SIZE = 16;
+
+    /** Score bound greater than any possible score */
+    private static final int INFINITY = 1_000_000;
+
+    /** Half-width of the aspiration window */
+    private static final int ASPIRATION_WINDOW = SCORE_SCALE / 2;
+
+    /** Number of iterations with the same best move after which the move is stable */
+    private static final int STABLE_ITERATIONS = 2;
+
+    /** Share of the soft time budget after which the search stops if the best move is stable (1 / STABLE_SHARE) */
+    private static final int STABLE_SHARE = 2;
+
+    /** Least expected growth of the iteration time with the depth (to skip the iteration the deadline would stop) */
+    private static final double MIN_ITERATION_GROWTH = 2;
+
+    /** Max expected growth of the iteration time with the depth (the growth of the last iteration is limited) */
+    private static final double MAX_ITERATION_GROWTH = 5;
+
+    /** Number of nodes between time checks (must be power of two) */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    /** Transposition table (shared by the searches of the game and by the threads) */
+    private TranspositionTable table;
+
+    /** Static evaluation of the positions */
+    private Evaluator evaluator = new SquareEvaluator();
+
+    /** Max depth of the search */
+    private int maxDepth = 6;
+
+    /** Time budget for the move in milliseconds (0 = no limit) */
+    private long timeMillis = 0;
+
+    /** Soft time budget in milliseconds: no new iteration after it (0 = only the time budget) */
+    private long softTimeMillis = 0;
+
+    /** Start time of the search (in nanoseconds) */
+    private long startNanos;
+
+    /** Number of search threads */
+    private int threads = 1;
+
+    /** Pool of the helper threads (null if the search uses one thread) */
+    private ExecutorService helpers;
+
+    /** Search threads state (index 0 = main thread) */
+    private Worker[] workers = {new Worker(0)};
+
+    /** Time to stop the search (in nanoseconds) */
+    private long deadline;
+
+    /** Flag if the search has to stop (by time or by finish of the main thread) */
+    private volatile boolean isStopped;
+
+    /** Flag if the searches are cancelled from another thread (until resume) */
+    private volatile boolean isCancelled;
+
+    /** Number of visited nodes of the last search (by all threads) */
+    private long nodes;
+
+    /** Depth of the last completed iteration */
+    private int completedDepth;
+
+    /** Score of the best move of the last completed iteration */
+    private int bestScore;
+
+    /** Number of move generations of the last search (by all threads) */
+    private long moveGenerations;
+
+    /** Number of static evaluations of the last search (by all threads) */
+    private long evaluations;
+
+    /** Number of transposition table probes of the last search */
+    private long cacheProbes;
+
+    /** Number of successful transposition table probes of the last search */
+    private long cacheHits;
+
+    /** Number of transposition table stores of the last search */
+    private long cacheStores;
+
+    /** Number of transposition table stores which replaced another position of the last search */
+    private long cacheCollisions;
+
+    /** Flag if the move ordering heuristics are used */
+    private boolean isOrdering = true;
+
+    /** Number of beta cutoffs of the last search (by all threads) */
+    private long cutoffs;
+
+    /** Number of beta cutoffs by the first move of the last search (by all threads) */
+    private long firstMoveCutoffs;
+
+    /**
+     * Constructor of the search with the transposition table of the default size
+     */
+    public Search() {
+        this(new TranspositionTable(DEFAULT_HASH_SIZE));
+    }
+
+    /**
+     * Constructor of the search with the given transposition table (several searches may share one table)
+     * @param table transposition table
+     */
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Set static evaluation of the positions
+     * @param evaluator evaluator (null = location values and mobility)
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator == null ? new SquareEvaluator() : evaluator;
+        table.clear();
+    }
+
+    /**
+     * Set max depth of the search
+     * @param maxDepth depth in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_DEPTH));
+    }
+
+    /**
+     * Set time budget for the move
+     * @param timeMillis time in milliseconds (0 = no limit)
+     */
+    public void setTimeMillis(long timeMillis) {
+        this.timeMillis = Math.max(0, timeMillis);
+    }
+
+    /**
+     * Set soft time budget for the move: no new iteration is started after it, after its half if the best move
+     * stays the same, or if the iteration is expected to reach the time budget (it stays the deadline of the search)
+     * @param softTimeMillis time in milliseconds (0 = only the time budget)
+     */
+    public void setSoftTimeMillis(long softTimeMillis) {
+        this.softTimeMillis = Math.max(0, softTimeMillis);
+    }
+
+    /**
+     * Set number of search threads
+     * @param threads number of threads (1 = deterministic search on the calling thread)
+     */
+    public void setThreads(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == this.threads) {
+            return;
+        }
+        if (helpers != null) {
+            helpers.shutdownNow();
+            helpers = null;
+        }
+        if (threads > 1) {
+            helpers = Executors.newFixedThreadPool(threads - 1, task -> {
+                Thread thread = new Thread(task, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        workers = new Worker[threads];
+        for (int id = 0; id < threads; id++) {
+            workers[id] = new Worker(id);
+            workers[id].ordering.setEnabled(isOrdering);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Enable or disable the move ordering heuristics (to measure their effect)
+     * @param isOrdering flag if the heuristics are used (otherwise only the transposition table move goes first)
+     */
+    public void setOrdering(boolean isOrdering) {
+        this.isOrdering = isOrdering;
+        for (Worker worker : workers) {
+            worker.ordering.setEnabled(isOrdering);
+        }
+    }
+
+    /**
+     * Set size of the transposition table (the table is cleared)
+     * @param megabytes memory budget of the table
+     */
+    public void setHashSize(int megabytes) {
+        table = new TranspositionTable(megabytes);
+    }
+
+    /**
+     * Get transposition table of the search
+     * @return transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Get number of visited nodes of the last search
+     * @return number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get depth of the last completed iteration
+     * @return depth in plies
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Get number of move generations of the last search
+     * @return number of move generations
+     */
+    public long getMoveGenerations() {
+        return moveGenerations;
+    }
+
+    /**
+     * Get number of static evaluations of the last search
+     * @return number of evaluations
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Get number of transposition table probes of the last search
+     * @return number of probes
+     */
+    public long getCacheProbes() {
+        return cacheProbes;
+    }
+
+    /**
+     * Get number of successful transposition table probes of the last search
+     * @return number of hits
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Get number of transposition table stores of the last search
+     * @return number of stores
+     */
+    public long getCacheStores() {
+        return cacheStores;
+    }
+
+    /**
+     * Get number of transposition table stores which replaced another position of the last search
+     * @return number of collisions
+     */
+    public long getCacheCollisions() {
+        return cacheCollisions;
+    }
+
+    /**
+     * Get number of beta cutoffs of the last search
+     * @return number of cutoffs
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * Get share of the beta cutoffs made by the first searched move (the quality of the move ordering)
+     * @return first move cutoff rate (0..1)
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /**
+     * Get score of the best move found by the last search
+     * @return score (in hundredths of disks, beyond WIN_SCORE if the result is proven, see diskScore)
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Stop the running search and cancel the next searches until resume (may be called from another thread)
+     */
+    public void stop() {
+        isCancelled = true;
+        isStopped = true;
+    }
+
+    /**
+     * Allow the searches after stop
+     */
+    public void resume() {
+        isCancelled = false;
+    }
+
+    /**
+     * Find the best move for the side to move
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     * @return square of the best move (-1 if player has to pass)
+     */
+    public int findMove(long black, long white, boolean isBlackGo) {
+        table.newSearch();
+        nodes = 0;
+        moveGenerations = 0;
+        evaluations = 0;
+        cacheProbes = 0;
+        cacheHits = 0;
+        cacheStores = 0;
+        cacheCollisions = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        completedDepth = 0;
+        bestScore = 0;
+        isStopped = isCancelled;
+        startNanos = System.nanoTime();
+        deadline = timeMillis > 0 ? startNanos + timeMillis * 1_000_000 : 0;
+        Worker main = workers[0];
+        main.board.set(black, white, isBlackGo);
+        long moves = main.board.legalMoves();
+        if (moves == 0 || Long.bitCount(moves) == 1) {
+            return moves == 0 ? -1 : Long.numberOfTrailingZeros(moves);
+        }
+        int depthLimit = Math.min(maxDepth, main.board.empties());
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for (int id = 1; id < threads; id++) {
+            Worker helper = workers[id];
+            helper.board.set(main.board);
+            futures.add(helpers.submit(() -> helper.iterate(depthLimit)));
+        }
+        main.iterate(depthLimit);
+        isStopped = true;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        for (Worker worker : workers) {
+            nodes += worker.nodes;
+            moveGenerations += worker.moveGenerations;
+            evaluations += worker.evaluations;
+            cacheProbes += worker.cacheProbes;
+            cacheHits += worker.cacheHits;
+            cacheStores += worker.cacheStores;
+            cacheCollisions += worker.cacheCollisions;
+            cutoffs += worker.ordering.getCutoffs();
+            firstMoveCutoffs += worker.ordering.getFirstMoveCutoffs();
+        }
+        completedDepth = main.completedDepth;
+        bestScore = main.bestScore;
+        return main.bestMove;
+    }
+
+    /**
+     * Search one root move with the full window (the exact score of every move for the analysis)
+     * The search runs on the calling thread, the time budget and the cancellation are the same as of findMove.
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     * @param square square of the move (must be legal)
+     * @param depth depth in plies (the move included)
+     * @return score of the move for the side to move (valid if the completed depth equals the depth,
+     * beyond WIN_SCORE if the result is proven, see diskScore)
+     */
+    public int searchMove(long black, long white, boolean isBlackGo, int square, int depth) {
+        completedDepth = 0;
+        isStopped = isCancelled;
+        deadline = timeMillis > 0 ? System.nanoTime() + timeMillis * 1_000_000 : 0;
+        Worker main = workers[0];
+        main.board.set(black, white, isBlackGo);
+        int score = main.searchMove(square, depth);
+        nodes = main.nodes;
+        moveGenerations = main.moveGenerations;
+        evaluations = main.evaluations;
+        cacheProbes = main.cacheProbes;
+        cacheHits = main.cacheHits;
+        cacheStores = main.cacheStores;
+        cacheCollisions = main.cacheCollisions;
+        if (!isStopped) {
+            completedDepth = depth;
+            bestScore = score;
+        }
+        return score;
+    }
+
+    /**
+     * Get the principal variation of the move from the transposition table
+     * The line follows the best moves stored by the searches and ends where the table has no legal move.
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     * @param square square of the first move (must be legal)
+     * @param length max number of plies
+     * @return squares of the plies (SearchBoard.PASS for the passes)
+     */
+    public int[] principalVariation(long black, long white, boolean isBlackGo, int square, int length) {
+        SearchBoard line = new SearchBoard();
+        line.set(black, white, isBlackGo);
+        int[] variation = new int[Math.max(1, length)];
+        variation[0] = square;
+        line.make(square);
+        int count = 1;
+        while (count < variation.length) {
+            long moves = line.legalMoves();
+            if (moves == 0) {
+                if (count + 1 == variation.length || BitBoard.legalMoves(line.opponent(), line.player()) == 0) {
+                    break;
+                }
+                variation[count++] = SearchBoard.PASS;
+                line.makePass();
+                continue;
+            }
+            long entry = table.probe(line.hash());
+            int move = entry == 0 ? -1 : TranspositionTable.move(entry);
+            if (move < 0 || (moves & (1L << move)) == 0) {
+                break;
+            }
+            variation[count++] = move;
+            line.make(move);
+        }
+        if (variation[count - 1] == SearchBoard.PASS) {
+            count--;
+        }
+        return Arrays.copyOf(variation, count);
+    }
+
+    /**
+     * Get exact score of the finished game
+     * @param player disks of the player
+     * @param opponent disks of the opponent
+     * @return disks difference for the player (scaled)
+     */
+    static int finalScore(long player, long opponent) {
+        return (Long.bitCount(player) - Long.bitCount(opponent)) * SCORE_SCALE;
+    }
+
+    /**
+     * Get search score of the finished game (a proven win or loss is better or worse than any evaluation)
+     * @param player disks of the player
+     * @param opponent disks of the opponent
+     * @return disks difference for the player (scaled) moved by WIN_SCORE away from zero
+     */
+    static int provenScore(long player, long opponent) {
+        int score = finalScore(player, opponent);
+        return score + Integer.signum(score) * WIN_SCORE;
+    }
+
+    /**
+     * Get score of the search in disks (the proven result without WIN_SCORE)
+     * @param score score of the search
+     * @return score in hundredths of disks
+     */
+    public static int diskScore(int score) {
+        return score >= WIN_SCORE ? score - WIN_SCORE : score <= -WIN_SCORE ? score + WIN_SCORE : score;
+    }
+
+    /**
+     * Search thread state (every thread searches its own copy of the board)
+     */
+    private final class Worker {
+        /** Number of the thread (0 = main thread) */
+        private final int id;
+
+        /** Board of the thread */
+        private final SearchBoard board = new SearchBoard();
+
+        /** Move ordering of the thread */
+        private final MoveOrdering ordering = new MoveOrdering();
+
+        /** Root moves in the search order */
+        private final int[] rootMoves = new int[SearchBoard.MAX_MOVES];
+
+        /** Number of visited nodes */
+        private long nodes;
+
+        /** Number of move generations */
+        private long moveGenerations;
+
+        /** Number of static evaluations */
+        private long evaluations;
+
+        /** Number of transposition table probes */
+        private long cacheProbes;
+
+        /** Number of successful transposition table probes */
+        private long cacheHits;
+
+        /** Number of transposition table stores */
+        private long cacheStores;
+
+        /** Number of transposition table stores which replaced another position */
+        private long cacheCollisions;
+
+        /** Depth of the last completed iteration */
+        private int completedDepth;
+
+        /** Best move of the last completed iteration */
+        private int bestMove;
+
+        /** Score of the best move of the last completed iteration */
+        private int bestScore;
+
+        /**
+         * Constructor of the worker
+         * @param id number of the thread (0 = main thread)
+         */
+        private Worker(int id) {
+            this.id = id;
+        }
+
+        /**
+         * Iterative deepening (helpers start from different depths and order root moves differently)
+         * @param depthLimit max depth
+         */
+        private void iterate(int depthLimit) {
+            resetCounters();
+            completedDepth = 0;
+            bestScore = 0;
+            ordering.newSearch();
+            int count = board.generateMoves();
+            ordering.order(board, count, depthLimit, -1);
+            for (int i = 0; i < count; i++) {
+                rootMoves[i] = board.move((i + id) % count);
+            }
+            bestMove = rootMoves[0];
+            int score = 0;
+            int stableIterations = 0;
+            long iterationNanos = 0;
+            for (int depth = 1 + (id & 1); depth <= depthLimit; depth++) {
+                long iterationStart = System.nanoTime();
+                int delta = ASPIRATION_WINDOW;
+                int alpha = depth > 2 ? score - delta : -INFINITY;
+                int beta = depth > 2 ? score + delta : INFINITY;
+                int move;
+                while (true) {
+                    long result = searchRoot(count, depth, alpha, beta);
+                    if (isStopped) {
+                        return;
+                    }
+                    score = (int) (result >> 8);
+                    move = (int) (result & 0xFF);
+                    if (score <= alpha && alpha > -INFINITY) {
+                        delta *= 2;
+                        alpha = Math.max(score - delta, -INFINITY);
+                    } else if (score >= beta && beta < INFINITY) {
+                        delta *= 2;
+                        beta = Math.min(score + delta, INFINITY);
+                    } else {
+                        break;
+                    }
+                }
+                stableIterations = move == bestMove ? stableIterations + 1 : 0;
+                bestMove = move;
+                bestScore = score;
+                completedDepth = depth;
+                if (id == 0 && softTimeMillis > 0) {
+                    long now = System.nanoTime();
+                    long lastNanos = iterationNanos;
+                    iterationNanos = now - iterationStart;
+                    double growth = lastNanos == 0 ? MIN_ITERATION_GROWTH : (double) iterationNanos / lastNanos;
+                    long nextNanos = (long) (iterationNanos
+                            * Math.max(MIN_ITERATION_GROWTH, Math.min(MAX_ITERATION_GROWTH, growth)));
+                    long elapsed = (now - startNanos) / 1_000_000;
+                    if (elapsed >= softTimeMillis
+                            || stableIterations >= STABLE_ITERATIONS && elapsed >= softTimeMillis / STABLE_SHARE
+                            || deadline != 0 && now + nextNanos > deadline) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Search one root move with the full window
+         * @param square square of the move
+         * @param depth depth in plies (the move included)
+         * @return score of the move
+         */
+        private int searchMove(int square, int depth) {
+            resetCounters();
+            board.make(square);
+            int score = -negamax(depth - 1, -INFINITY, INFINITY);
+            board.unmake();
+            return score;
+        }
+
+        /**
+         * Reset the counters of the search
+         */
+        private void resetCounters() {
+            nodes = 0;
+            moveGenerations = 0;
+            evaluations = 0;
+            cacheProbes = 0;
+            cacheHits = 0;
+            cacheStores = 0;
+            cacheCollisions = 0;
+        }
+
+        /**
+         * Search the root moves (the best move of the previous iteration goes first,
+         * helpers start the rest moves from different positions)
+         * @param count number of root moves
+         * @return score and square of the best move packed as (score << 8 | square)
+         */
+        private long searchRoot(int count, int depth, int alpha, int beta) {
+            for (int i = 0; rootMoves[0] != bestMove; i++) {
+                if (rootMoves[i] == bestMove) {
+                    rootMoves[i] = rootMoves[0];
+                    rootMoves[0] = bestMove;
+                }
+            }
+            int best = -INFINITY;
+            int bestSquare = bestMove;
+            for (int i = 0; i < count; i++) {
+                int square = rootMoves[i];
+                board.make(square);
+                int score = -negamax(depth - 1, -beta, -Math.max(alpha, best));
+                board.unmake();
+                if (isStopped) {
+                    break;
+                }
+                if (score > best) {
+                    best = score;
+                    bestSquare = square;
+                    if (score >= beta) {
+                        break;
+                    }
+                }
+            }
+            return ((long) best << 8) | bestSquare;
+        }
+
+        /**
+         * Negamax search with alpha-beta pruning and transposition table
+         * @param depth remaining depth
+         * @param alpha lower bound of the score
+         * @param beta upper bound of the score
+         * @return score of the position for the player to move
+         */
+        private int negamax(int depth, int alpha, int beta) {
+            if ((++nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && deadline != 0 && System.nanoTime() > deadline) {
+                isStopped = true;
+            }
+            if (isStopped) {
+                return 0;
+            }
+            if (depth == 0) {
+                if ((board.player() | board.opponent()) == -1L) {
+                    return provenScore(board.player(), board.opponent());
+                }
+                evaluations++;
+                int score = evaluator.evaluate(board.player(), board.opponent());
+                return Math.max(1 - WIN_SCORE, Math.min(WIN_SCORE - 1, score));
+            }
+            long hash = board.hash();
+            int alphaOrigin = alpha;
+            int hashMove = -1;
+            long entry = table.probe(hash);
+            cacheProbes++;
+            if (entry != 0) {
+                cacheHits++;
+                hashMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = TranspositionTable.score(entry);
+                    switch (TranspositionTable.bound(entry)) {
+                        case TranspositionTable.EXACT -> {
+                            return score;
+                        }
+                        case TranspositionTable.LOWER -> alpha = Math.max(alpha, score);
+                        default -> beta = Math.min(beta, score);
+                    }
+                    if (alpha >= beta) {
+                        return score;
+                    }
+                }
+            }
+            int count = board.generateMoves();
+            moveGenerations++;
+            if (count == 0) {
+                if (board.isPassed()) {
+                    return provenScore(board.player(), board.opponent());
+                }
+                board.makePass();
+                int score = -negamax(depth, -beta, -alpha);
+                board.unmake();
+                return score;
+            }
+            ordering.order(board, count, depth, hashMove);
+            int best = -INFINITY;
+            int bestMove = -1;
+            for (int i = 0; i < count; i++) {
+                int square = board.move(i);
+                board.make(square);
+                int score = -negamax(depth - 1, -beta, -alpha);
+                board.unmake();
+                if (score > best) {
+                    best = score;
+                    bestMove = square;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            ordering.cutoff(board, square, depth, i);
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!isStopped) {
+                int bound = best <= alphaOrigin ? TranspositionTable.UPPER
+                        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+                cacheStores++;
+                if (table.store(hash, depth, bound, best, bestMove)) {
+                    cacheCollisions++;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Mutable board of the search engine with allocation-free make/unmake of the moves
+ * Flipped disks of every ply are kept in the preallocated undo stack,
+ * moves of every ply are generated into the preallocated buffer.
+ */
+public final class SearchBoard {
+    /** Max number of plies from the root (moves and passes) */
+    public static final int MAX_PLY = 128;
+
+    /** Max number of moves in one position (buffer width of one ply) */
+    public static final int MAX_MOVES = 64;
+
+    /** Square of the pass in the undo stack */
+    public static final int PASS = -1;
+
+    /** Disks of the player to move */
+    private long player;
+
+    /** Disks of the opponent */
+    private long opponent;
+
+    /** Zobrist hash of the position */
+    private long hash;
+
+    /** Flag if the player to move is black */
+    private boolean isBlack;
+
+    /** Number of plies from the root */
+    private int ply;
+
+    /** Undo stack: squares of the made moves */
+    private final int[] squares = new int[MAX_PLY];
+
+    /** Undo stack: flipped disks of the made moves */
+    private final long[] flips = new long[MAX_PLY];
+
+    /** Buffer of the generated moves (MAX_MOVES cells for every ply) */
+    private final int[] moves = new int[MAX_PLY * MAX_MOVES];
+
+    /**
+     * Set the root position (the undo stack is cleared)
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     */
+    public void set(long black, long white, boolean isBlackGo) {
+        player = isBlackGo ? black : white;
+        opponent = isBlackGo ? white : black;
+        isBlack = isBlackGo;
+        hash = Zobrist.hash(black, white, isBlackGo);
+        ply = 0;
+    }
+
+    /**
+     * Set the root position (the undo stack is cleared)
+     * @param position position of the game
+     */
+    public void set(Position position) {
+        set(position.black(), position.white(), position.isBlackGo());
+    }
+
+    /**
+     * Copy the position of another board (the undo stack is cleared)
+     * @param board board to copy
+     */
+    public void set(SearchBoard board) {
+        player = board.player;
+        opponent = board.opponent;
+        isBlack = board.isBlack;
+        hash = board.hash;
+        ply = 0;
+    }
+
+    /**
+     * Make the move (the move must be legal)
+     * @param square square of the move
+     */
+    public void make(int square) {
+        long flipped = BitBoard.flips(player, opponent, square);
+        squares[ply] = square;
+        flips[ply] = flipped;
+        ply++;
+        hash = Zobrist.move(hash, square, flipped, isBlack);
+        long next = opponent & ~flipped;
+        opponent = player | flipped | (1L << square);
+        player = next;
+        isBlack = !isBlack;
+    }
+
+    /**
+     * Make the pass
+     */
+    public void makePass() {
+        squares[ply] = PASS;
+        flips[ply] = 0;
+        ply++;
+        hash = Zobrist.pass(hash);
+        long next = opponent;
+        opponent = player;
+        player = next;
+        isBlack = !isBlack;
+    }
+
+    /**
+     * Unmake the last move or pass
+     */
+    public void unmake() {
+        ply--;
+        int square = squares[ply];
+        long flipped = flips[ply];
+        isBlack = !isBlack;
+        long previous = opponent;
+        opponent = player;
+        player = previous;
+        if (square != PASS) {
+            player &= ~(flipped | (1L << square));
+            opponent |= flipped;
+            hash = Zobrist.move(hash, square, flipped, isBlack);
+        } else {
+            hash = Zobrist.pass(hash);
+        }
+    }
+
+    /**
+     * Generate legal moves of the current ply into the buffer
+     * @return number of moves (they are available by move(index))
+     */
+    public int generateMoves() {
+        int offset = ply * MAX_MOVES;
+        int count = 0;
+        for (long legal = legalMoves(); legal != 0; legal &= legal - 1) {
+            moves[offset + count++] = Long.numberOfTrailingZeros(legal);
+        }
+        return count;
+    }
+
+    /**
+     * Get generated move of the current ply
+     * @param index index of the move
+     * @return square of the move
+     */
+    public int move(int index) {
+        return moves[ply * MAX_MOVES + index];
+    }
+
+    /**
+     * Swap two generated moves of the current ply (to order moves)
+     * @param i index of the first move
+     * @param j index of the second move
+     */
+    public void swapMoves(int i, int j) {
+        int offset = ply * MAX_MOVES;
+        int move = moves[offset + i];
+        moves[offset + i] = moves[offset + j];
+        moves[offset + j] = move;
+    }
+
+    /**
+     * Get legal moves of the player to move
+     * @return mask of the squares to move
+     */
+    public long legalMoves() {
+        return BitBoard.legalMoves(player, opponent);
+    }
+
+    /**
+     * Get disks of the player to move
+     * @return disks
+     */
+    public long player() {
+        return player;
+    }
+
+    /**
+     * Get disks of the opponent
+     * @return disks
+     */
+    public long opponent() {
+        return opponent;
+    }
+
+    /**
+     * Get Zobrist hash of the position
+     * @return hash
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Check if the player to move is black
+     * @return true if black goes
+     */
+    public boolean isBlack() {
+        return isBlack;
+    }
+
+    /**
+     * Get number of plies from the root
+     * @return ply
+     */
+    public int ply() {
+        return ply;
+    }
+
+    /**
+     * Check if the previous ply was pass
+     * @return true if the last made move is pass
+     */
+    public boolean isPassed() {
+        return ply > 0 && squares[ply - 1] == PASS;
+    }
+
+    /**
+     * Get number of empty squares
+     * @return number of empty squares
+     */
+    public int empties() {
+        return Long.bitCount(~(player | opponent));
+    }
+}
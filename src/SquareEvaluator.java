@@ -0,0 +1,33 @@
+/**
+ * Evaluator by the location values of the disks and the mobility
+ */
+public class SquareEvaluator implements Evaluator {
+    /** Location values of the squares (corners are the best, cells near the corners are the worst) */
+    static final int[] SQUARE_VALUES = {
+            100, -20,  10,   5,   5,  10, -20, 100,
+            -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+             10,  -2,   1,   1,   1,   1,  -2,  10,
+              5,  -2,   1,   0,   0,   1,  -2,   5,
+              5,  -2,   1,   0,   0,   1,  -2,   5,
+             10,  -2,   1,   1,   1,   1,  -2,  10,
+            -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+            100, -20,  10,   5,   5,  10, -20, 100
+    };
+
+    /** Value of one possible move (mobility) */
+    static final int MOBILITY_VALUE = 10;
+
+    @Override
+    public int evaluate(long player, long opponent) {
+        int result = 0;
+        for (long disks = player; disks != 0; disks &= disks - 1) {
+            result += SQUARE_VALUES[Long.numberOfTrailingZeros(disks)];
+        }
+        for (long disks = opponent; disks != 0; disks &= disks - 1) {
+            result -= SQUARE_VALUES[Long.numberOfTrailingZeros(disks)];
+        }
+        result += MOBILITY_VALUE * (Long.bitCount(BitBoard.legalMoves(player, opponent))
+                - Long.bitCount(BitBoard.legalMoves(opponent, player)));
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * immutable time control of the AI player: fixed time per move or game clock with increment
+ * Text format (milliseconds): "MOVE" for the time per move or "CLOCK+INCREMENT" for the game clock,
+ * e.g. "500", "60000+1000"
+ * @param moveMillis time per move (0 for the game clock)
+ * @param clockMillis time of the game clock (0 for the time per move)
+ * @param incrementMillis time added to the clock after every move
+ */
+public record TimeControl(long moveMillis, long clockMillis, long incrementMillis) {
+    /**
+     * Parse time control from the text format
+     * @param text time control in the text format
+     * @return time control
+     * @throws IllegalArgumentException if the text is not time control
+     */
+    public static TimeControl parse(String text) {
+        String[] parts = text.strip().split("\\+");
+        long millis = Long.parseLong(parts[0]);
+        if (millis <= 0 || parts.length > 2) {
+            throw new IllegalArgumentException("Wrong time control: " + text);
+        }
+        return parts.length == 1 ? new TimeControl(millis, 0, 0)
+                : new TimeControl(0, millis, Math.max(0, Long.parseLong(parts[1])));
+    }
+
+    /**
+     * Check if the time control is the game clock
+     * @return true for the game clock, false for the time per move
+     */
+    public boolean isClock() {
+        return clockMillis > 0;
+    }
+
+    /**
+     * Override toString method
+     * @return time control in the text format
+     */
+    @Override
+    public String toString() {
+        return isClock() ? clockMillis + "+" + incrementMillis : String.valueOf(moveMillis);
+    }
+}
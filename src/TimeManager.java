@@ -0,0 +1,124 @@
+/**
+ * Time manager of the AI player: keeps the game clocks and gives the time budget of every move
+ * The budget is the remaining time divided by the moves left to play, weighted by the game phase (the opening
+ * is cheaper, the midgame gets more), plus the increment. The soft budget is the time after which the search
+ * starts no new iteration (half of it if the best move is stable), the hard budget is the deadline of the search.
+ */
+public class TimeManager {
+    /** Least number of the moves the remaining time is divided by */
+    private static final int MIN_MOVES_TO_GO = 8;
+
+    /** Max ratio of the hard budget to the soft budget */
+    private static final int HARD_RATIO = 3;
+
+    /** Max share of the remaining time for one move (1 / MAX_SHARE) */
+    private static final int MAX_SHARE = 4;
+
+    /** Time kept on the clock for the overhead of the moves (in milliseconds) */
+    private static final long SAFETY_MILLIS = 50;
+
+    /** Least budget of the move (in milliseconds) */
+    private static final long MIN_MILLIS = 10;
+
+    /** Number of empty cells of the opening (more empty cells = opening) */
+    private static final int OPENING_EMPTIES = 44;
+
+    /** Number of empty cells of the endgame (less empty cells = endgame) */
+    private static final int ENDGAME_EMPTIES = 20;
+
+    /** Weight of the opening moves in the budget */
+    private static final double OPENING_WEIGHT = 0.6;
+
+    /** Weight of the midgame moves in the budget */
+    private static final double MIDGAME_WEIGHT = 1.4;
+
+    /**
+     * Time budget of the move
+     * @param softMillis time after which the search starts no new iteration (in milliseconds)
+     * @param hardMillis deadline of the search (in milliseconds)
+     */
+    public record Budget(long softMillis, long hardMillis) {}
+
+    /** Time control of the game */
+    private final TimeControl control;
+
+    /** Remaining time of the clocks (index 0 = black, 1 = white, in milliseconds) */
+    private final long[] remaining = new long[2];
+
+    /**
+     * Constructor of the time manager (the clocks are set to the start time)
+     * @param control time control of the game
+     */
+    public TimeManager(TimeControl control) {
+        this.control = control;
+        reset();
+    }
+
+    /**
+     * Set the clocks to the start time (for new game)
+     */
+    public void reset() {
+        remaining[0] = control.clockMillis();
+        remaining[1] = control.clockMillis();
+    }
+
+    /**
+     * Get time control of the game
+     * @return time control
+     */
+    public TimeControl getControl() {
+        return control;
+    }
+
+    /**
+     * Get remaining time of the clock
+     * @param isBlack flag of the black clock
+     * @return remaining time in milliseconds (negative if the time is over)
+     */
+    public long getRemainingMillis(boolean isBlack) {
+        return remaining[isBlack ? 0 : 1];
+    }
+
+    /**
+     * Get the time budget of the move
+     * @param isBlack flag if black moves
+     * @param empties number of empty cells
+     * @return time budget
+     */
+    public Budget budget(boolean isBlack, int empties) {
+        if (!control.isClock()) {
+            return new Budget(control.moveMillis(), control.moveMillis());
+        }
+        long available = Math.max(0, remaining[isBlack ? 0 : 1] - SAFETY_MILLIS);
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, (empties + 1) / 2);
+        double weight = empties > OPENING_EMPTIES ? OPENING_WEIGHT : empties > ENDGAME_EMPTIES ? MIDGAME_WEIGHT : 1;
+        long soft = (long) (available * weight / movesToGo) + control.incrementMillis();
+        long hard = Math.min(soft * HARD_RATIO, Math.min(available, available / MAX_SHARE + control.incrementMillis()));
+        hard = Math.max(MIN_MILLIS, hard);
+        return new Budget(Math.max(MIN_MILLIS, Math.min(soft, hard)), hard);
+    }
+
+    /**
+     * Take the time of the move from the clock and add the increment
+     * @param isBlack flag if black moved
+     * @param nanos time of the move (in nanoseconds)
+     */
+    public void spend(boolean isBlack, long nanos) {
+        if (control.isClock()) {
+            remaining[isBlack ? 0 : 1] += control.incrementMillis() - nanos / 1_000_000;
+        }
+    }
+
+    /**
+     * Override toString method
+     * @return remaining time of the clocks (or the time per move)
+     */
+    @Override
+    public String toString() {
+        if (!control.isClock()) {
+            return "Time per move: " + control.moveMillis() + " ms";
+        }
+        return String.format("Clock: black %.1f s, white %.1f s (+%.1f s per move)", remaining[0] / 1000.0,
+                remaining[1] / 1000.0, control.incrementMillis() / 1000.0);
+    }
+}
@@ -0,0 +1,356 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless tournament of two AI players (COMPUTER_VS_COMPUTER games played in parallel)
+ * Games go in pairs: both players play the same opening with black and with white.
+ * Every player has its own Field per thread, so the players do not share search caches.
+ */
+public class Tournament {
+    /** Settings of the first player */
+    private final EngineSettings first;
+
+    /** Settings of the second player */
+    private final EngineSettings second;
+
+    /** Number of games */
+    private final int games;
+
+    /** Number of games played at the same time */
+    private final int threads;
+
+    /** Number of random plies of the opening (if there are no opening positions) */
+    private final int randomPlies;
+
+    /** Opening positions (empty = random openings) */
+    private final List<Position> openings;
+
+    /** Seed of the random openings */
+    private final long seed;
+
+    /** Opening book of both players (null = no book) */
+    private OpeningBook book;
+
+    /** Writer of the game records (null = games are not recorded) */
+    private GameRecordWriter records;
+
+    /** Time control of both players (null = search depth and time of the difficulty) */
+    private TimeControl timeControl;
+
+    /** Statistics of the moves of the first and the second player (shared by the threads) */
+    private final EngineStatistics[] statistics = {new EngineStatistics(), new EngineStatistics()};
+
+    /** Number of the games with the clock over of the first and the second player */
+    private final LongAdder[] timeOvers = {new LongAdder(), new LongAdder()};
+
+    /** Fields of the players owned by the current thread */
+    private final ThreadLocal<Field[]> fields = ThreadLocal.withInitial(() -> new Field[] {new Field(), new Field()});
+
+    /**
+     * Result of one game
+     * @param game number of the game
+     * @param opening start position of the game
+     * @param isFirstBlack flag if the first player plays black
+     * @param black number of black disks at the end
+     * @param white number of white disks at the end
+     * @param plies number of moves and passes
+     * @param millis duration of the game
+     */
+    public record GameResult(int game, Position opening, boolean isFirstBlack,
+                             int black, int white, int plies, long millis) {
+        /**
+         * Get disks difference for the first player
+         * @return difference of the disks
+         */
+        public int firstDifference() {
+            return isFirstBlack ? black - white : white - black;
+        }
+
+        /**
+         * Get result line of the CSV file
+         * @return comma separated values
+         */
+        public String toCsv() {
+            int difference = firstDifference();
+            return game + "," + opening + "," + (isFirstBlack ? "first" : "second") + ","
+                    + black + "," + white + "," + (difference > 0 ? "win" : difference < 0 ? "loss" : "draw") + ","
+                    + difference + "," + plies + "," + millis;
+        }
+    }
+
+    /**
+     * Constructor of the tournament
+     * @param first settings of the first player
+     * @param second settings of the second player
+     * @param games number of games
+     * @param threads number of games played at the same time
+     * @param randomPlies number of random plies of the opening
+     * @param openings opening positions (empty = random openings)
+     * @param seed seed of the random openings
+     */
+    public Tournament(EngineSettings first, EngineSettings second, int games, int threads,
+                      int randomPlies, List<Position> openings, long seed) {
+        this.first = first;
+        this.second = second;
+        this.games = games;
+        this.threads = Math.max(1, threads);
+        this.randomPlies = randomPlies;
+        this.openings = openings;
+        this.seed = seed;
+    }
+
+    /**
+     * Set opening book of both players
+     * @param book opening book (null = no book)
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Set writer of the game records
+     * @param records writer of the records (null = games are not recorded)
+     */
+    public void setRecordWriter(GameRecordWriter records) {
+        this.records = records;
+    }
+
+    /**
+     * Set time control of both players
+     * @param timeControl time control (null = search depth and time of the difficulty)
+     */
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    /**
+     * Get opening of the game pair
+     * @param pair number of the game pair
+     * @return start position
+     */
+    private Position opening(int pair) {
+        if (!openings.isEmpty()) {
+            return openings.get(pair % openings.size());
+        }
+        SplittableRandom random = new SplittableRandom(seed + pair);
+        SearchBoard board = new SearchBoard();
+        board.set(Position.START);
+        for (int ply = 0; ply < randomPlies; ply++) {
+            int count = board.generateMoves();
+            if (count == 0) {
+                break;
+            }
+            board.make(board.move(random.nextInt(count)));
+        }
+        long black = board.isBlack() ? board.player() : board.opponent();
+        long white = board.isBlack() ? board.opponent() : board.player();
+        return new Position(black, white, board.isBlack());
+    }
+
+    /**
+     * Play one game
+     * @param game number of the game
+     * @return result of the game
+     */
+    private GameResult play(int game) {
+        Position opening = opening(game / 2);
+        boolean isFirstBlack = game % 2 == 0;
+        Field[] players = fields.get();
+        Point[] lastMove = new Point[1];
+        GameListener recorder = new GameListener() {
+            @Override
+            public void moveMade(Point point, boolean isBlack, boolean isComputer) {
+                lastMove[0] = point;
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            players[i].resetField();
+            players[i].setGameMode(Game.GameMode.COMPUTER_VS_COMPUTER);
+            (i == 0 ? first : second).apply(players[i]);
+            players[i].setOpeningBook(book);
+            players[i].setTimeControl(timeControl);
+            players[i].setStatistics(statistics[i]);
+            players[i].setPosition(opening);
+            players[i].addListener(recorder);
+        }
+        long start = System.nanoTime();
+        int plies = 0;
+        while (!players[0].hasGameEnded()) {
+            int mover = players[0].getTurn() == isFirstBlack ? 0 : 1;
+            lastMove[0] = null;
+            players[mover].move();
+            if (lastMove[0] != null) {
+                players[1 - mover].move(lastMove[0]);
+            } else {
+                players[1 - mover].move();
+            }
+            plies++;
+        }
+        for (int i = 0; i < 2; i++) {
+            players[i].removeListener(recorder);
+            TimeManager clock = players[i].getClock();
+            boolean isBlack = (i == 0) == isFirstBlack;
+            if (clock != null && clock.getControl().isClock() && clock.getRemainingMillis(isBlack) < 0) {
+                timeOvers[i].increment();
+            }
+        }
+        if (records != null) {
+            int firstPlayer = GameRecord.player(first.level());
+            int secondPlayer = GameRecord.player(second.level());
+            try {
+                records.write(GameRecord.of(players[0].getHistory(), isFirstBlack ? firstPlayer : secondPlayer,
+                        isFirstBlack ? secondPlayer : firstPlayer));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Position end = players[0].getPosition();
+        return new GameResult(game, opening, isFirstBlack, Long.bitCount(end.black()), Long.bitCount(end.white()),
+                plies, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Play all games, stream results to the CSV file and print the summary
+     * @param csv path to the CSV file (null = no file)
+     * @return results of the games
+     */
+    public List<GameResult> run(Path csv) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<GameResult>> futures = new ArrayList<>();
+        for (int game = 0; game < games; game++) {
+            int number = game;
+            futures.add(executor.submit(() -> play(number)));
+        }
+        List<GameResult> results = new ArrayList<>();
+        long start = System.nanoTime();
+        BufferedWriter writer = csv == null ? null : Files.newBufferedWriter(csv);
+        try {
+            if (writer != null) {
+                writer.write("game,opening,black,black disks,white disks,first result,first difference,plies,millis");
+                writer.newLine();
+            }
+            for (Future<GameResult> future : futures) {
+                GameResult result = future.get();
+                results.add(result);
+                if (writer != null) {
+                    writer.write(result.toCsv());
+                    writer.newLine();
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        printSummary(results, (System.nanoTime() - start) / 1e9);
+        return results;
+    }
+
+    /**
+     * Print win/draw/loss rates, average disks difference and games per second
+     * @param results results of the games
+     * @param seconds duration of the tournament
+     */
+    private void printSummary(List<GameResult> results, double seconds) {
+        int wins = 0;
+        int draws = 0;
+        int losses = 0;
+        long difference = 0;
+        for (GameResult result : results) {
+            int firstDifference = result.firstDifference();
+            if (firstDifference > 0) {
+                wins++;
+            } else if (firstDifference < 0) {
+                losses++;
+            } else {
+                draws++;
+            }
+            difference += firstDifference;
+        }
+        int count = Math.max(1, results.size());
+        System.out.println(first + " vs " + second + ": " + results.size() + " games");
+        System.out.printf("wins %d (%.1f%%), draws %d (%.1f%%), losses %d (%.1f%%)%n",
+                wins, 100.0 * wins / count, draws, 100.0 * draws / count, losses, 100.0 * losses / count);
+        System.out.printf("average disks difference %+.2f, %.2f games/s%n",
+                (double) difference / count, results.size() / Math.max(seconds, 1e-9));
+        EngineSettings[] settings = {first, second};
+        for (int i = 0; i < 2; i++) {
+            System.out.println(settings[i] + ": " + statistics[i].latencies()
+                    + (timeControl != null && timeControl.isClock() ? ", clock over in " + timeOvers[i].sum()
+                    + " games" : ""));
+        }
+    }
+
+    /**
+     * Main function
+     * @param args first and second players settings (see EngineSettings), then options
+     *             games=N, threads=N, random=N, openings=file, book=file, csv=file, records=file, seed=N,
+     *             time=MILLIS per move or time=CLOCK+INCREMENT (see TimeControl)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java Tournament <first> <second> [games=100] [threads=N] [random=4] "
+                    + "[openings=file] [book=file] [csv=file] [records=file] [seed=1] [time=MILLIS|CLOCK+INCREMENT]");
+            return;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        List<Position> openings = new ArrayList<>();
+        if (options.containsKey("openings")) {
+            try {
+                for (String line : Files.readAllLines(Path.of(options.get("openings")))) {
+                    if (!line.isBlank() && !line.startsWith("#")) {
+                        openings.add(Position.parse(line));
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        Tournament tournament = new Tournament(EngineSettings.parse(args[0]), EngineSettings.parse(args[1]),
+                Integer.parseInt(options.getOrDefault("games", "100")),
+                Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(options.getOrDefault("random", "4")),
+                openings,
+                Long.parseLong(options.getOrDefault("seed", "1")));
+        if (options.containsKey("book")) {
+            tournament.setOpeningBook(OpeningBook.open(Path.of(options.get("book"))));
+        }
+        GameRecordWriter records = options.containsKey("records")
+                ? new GameRecordWriter(Path.of(options.get("records"))) : null;
+        tournament.setRecordWriter(records);
+        if (options.containsKey("time")) {
+            tournament.setTimeControl(TimeControl.parse(options.get("time")));
+        }
+        try {
+            tournament.run(options.containsKey("csv") ? Path.of(options.get("csv")) : null);
+        } finally {
+            if (records != null) {
+                records.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+/**
+ * Class of the fixed-size transposition table (cache of the searched positions)
+ * Every bucket has two entries: depth-preferred and always-replace.
+ * Entry data is packed into one long:
+ * bits 0-31 - score, 32-39 - depth, 40-41 - bound type, 42-49 - best move, 50-57 - search generation
+ * The table is lock-free: the key is stored xor-ed with the data, so an entry torn by concurrent
+ * writes of several search threads does not pass the key check.
+ * The table keeps no counters: the searches count the probes, hits, stores and collisions per thread.
+ */
+public class TranspositionTable {
+    /** Exact score */
+    public static final int EXACT = 1;
+
+    /** Score is lower bound (fail high) */
+    public static final int LOWER = 2;
+
+    /** Score is upper bound (fail low) */
+    public static final int UPPER = 3;
+
+    /** Code of the missing best move */
+    private static final int NO_MOVE = 0xFF;
+
+    /** Size of one entry in bytes (key and data) */
+    private static final int ENTRY_BYTES = 16;
+
+    /** Keys of the entries (xor-ed with the data) */
+    private final long[] keys;
+
+    /** Packed data of the entries (0 = empty entry) */
+    private final long[] data;
+
+    /** Mask of the bucket index */
+    private final int bucketMask;
+
+    /** Current search generation */
+    private int generation;
+
+    /**
+     * Constructor of the transposition table
+     * @param megabytes memory budget (the table takes the largest power of two buckets within it)
+     */
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(2, (long) Math.max(1, megabytes) * 1024 * 1024 / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 29));
+        bucketMask = buckets - 1;
+        keys = new long[buckets * 2];
+        data = new long[buckets * 2];
+    }
+
+    /**
+     * Start new search (older entries become less valuable for the replacement)
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Find the entry of the position
+     * @param hash hash of the position
+     * @return packed data of the entry (0 if there is no entry)
+     */
+    public long probe(long hash) {
+        int index = (int) (hash & bucketMask) * 2;
+        for (int i = index; i < index + 2; i++) {
+            long entry = data[i];
+            if (entry != 0 && (keys[i] ^ entry) == hash) {
+                return entry;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store the entry of the position
+     * @param hash hash of the position
+     * @param depth searched depth
+     * @param bound bound type (EXACT, LOWER or UPPER)
+     * @param score score of the position
+     * @param move best move (-1 if there is no move)
+     * @return true if the entry replaced another position (collision)
+     */
+    public boolean store(long hash, int depth, int bound, int score, int move) {
+        long entry = (score & 0xFFFFFFFFL)
+                | ((long) depth << 32)
+                | ((long) bound << 40)
+                | ((long) (move < 0 ? NO_MOVE : move) << 42)
+                | ((long) generation << 50);
+        int index = (int) (hash & bucketMask) * 2;
+        long old = data[index];
+        if (old != 0 && (keys[index] ^ old) != hash && depth(old) > depth && generation(old) == generation) {
+            index++;
+            old = data[index];
+        }
+        boolean isCollision = old != 0 && (keys[index] ^ old) != hash;
+        keys[index] = hash ^ entry;
+        data[index] = entry;
+        return isCollision;
+    }
+
+    /**
+     * Get score of the entry
+     * @param entry packed data of the entry
+     * @return score
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get searched depth of the entry
+     * @param entry packed data of the entry
+     * @return depth
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /**
+     * Get bound type of the entry
+     * @param entry packed data of the entry
+     * @return bound type (EXACT, LOWER or UPPER)
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Get best move of the entry
+     * @param entry packed data of the entry
+     * @return square of the best move (-1 if there is no move)
+     */
+    public static int move(long entry) {
+        int move = (int) (entry >>> 42) & 0xFF;
+        return move == NO_MOVE ? -1 : move;
+    }
+
+    /**
+     * Get search generation of the entry
+     * @param entry packed data of the entry
+     * @return generation
+     */
+    private static int generation(long entry) {
+        return (int) (entry >>> 50) & 0xFF;
+    }
+
+    /**
+     * Get size of the table in megabytes
+     * @return memory used by entries
+     */
+    public int getMegabytes() {
+        return (int) ((long) keys.length * ENTRY_BYTES / (1024 * 1024));
+    }
+}
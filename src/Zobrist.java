@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing of the board (disks and side to move)
+ */
+public final class Zobrist {
+    /** Keys of the black disks */
+    private static final long[] BLACK = new long[BitBoard.SQUARES];
+
+    /** Keys of the white disks */
+    private static final long[] WHITE = new long[BitBoard.SQUARES];
+
+    /** Keys of the recolored disks (black key xor white key) */
+    private static final long[] FLIP = new long[BitBoard.SQUARES];
+
+    /** Key of the white side to move */
+    private static final long WHITE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_2E7E25L);
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            BLACK[square] = random.nextLong();
+            WHITE[square] = random.nextLong();
+            FLIP[square] = BLACK[square] ^ WHITE[square];
+        }
+        WHITE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Calculate hash of the position from scratch
+     * @param black black disks
+     * @param white white disks
+     * @param isBlackGo flag if black goes
+     * @return hash of the position
+     */
+    public static long hash(long black, long white, boolean isBlackGo) {
+        long hash = isBlackGo ? 0 : WHITE_TO_MOVE;
+        for (long disks = black; disks != 0; disks &= disks - 1) {
+            hash ^= BLACK[Long.numberOfTrailingZeros(disks)];
+        }
+        for (long disks = white; disks != 0; disks &= disks - 1) {
+            hash ^= WHITE[Long.numberOfTrailingZeros(disks)];
+        }
+        return hash;
+    }
+
+    /**
+     * Update hash by the move (the same call restores the hash on undo)
+     * @param hash hash of the position
+     * @param square square of the move
+     * @param flips recolored disks
+     * @param isBlackMove flag if black moves
+     * @return hash of the position after the move (or before the move on undo)
+     */
+    public static long move(long hash, int square, long flips, boolean isBlackMove) {
+        hash ^= (isBlackMove ? BLACK[square] : WHITE[square]) ^ WHITE_TO_MOVE;
+        for (; flips != 0; flips &= flips - 1) {
+            hash ^= FLIP[Long.numberOfTrailingZeros(flips)];
+        }
+        return hash;
+    }
+
+    /**
+     * Update hash by the pass (the same call restores the hash on undo)
+     * @param hash hash of the position
+     * @return hash of the position after the pass
+     */
+    public static long pass(long hash) {
+        return hash ^ WHITE_TO_MOVE;
+    }
+}